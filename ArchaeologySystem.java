@@ -1,7 +1,17 @@
+import java.io.IOException;
+
 /**
  * @author Tiago Costa Sousa
  * @author Rodrigo Lemos Fernandes 
  * Bridges together all classes and organizes information to be sent to the main class.
+ * Teams can be referred to by name or by a team handle, which is resolved from a name once and then used without any name lookup.
+ * A system can be made concurrent, so that many teams can dig at once from different threads. Everything a team does then happens
+ * while holding the striped lock of the team, and a handle is checked again under that lock, since another thread may have removed
+ * its team in the meantime.
+ * The terrain of a concurrent system can also be sharded, so each band of rows is dug by a worker thread of its own. A team then moves
+ * its player and routes the dig without waiting for it, and the merit of the dig is given later by the coordinator of the bands,
+ * under the lock of the team, to the player that dug, unless the team was removed meanwhile. Every method that reads merit, scores
+ * or the terrain first waits for the digs routed before it, so it reads the same as if the digs were not sharded.
  */
 
 public class ArchaeologySystem {
@@ -10,28 +20,129 @@ public class ArchaeologySystem {
 	
 	private static final int ZERO = 0;
 	private static final int PENALTY = -10;
+	private static final String NOT_CONCURRENT = "System not concurrent";
 
 	// instance variables
 
 	private TeamCollection tc;
 	private Terrain terrain;
+	private PlayerStore players;
+	private RankingRenderer rankingRenderer;
+	private volatile ShardedTerrain shards;
 
 	// constructors
 
 	public ArchaeologySystem(int rows, int cols) {
 		tc = new TeamCollection();
+		players = new PlayerStore();
 		terrain = new Terrain(rows, cols);
 	}
 
+	/**
+	 * Creates a system whose terrain is kept in a new map file, which is filled as plots are added.
+	 * @param mapFile Name of the map file.
+	 * @param rows Number of rows of the terrain.
+	 * @param cols Number of columns of the terrain.
+	 * @throws IOException if the map file cannot be created.
+	 * @pre mapFile != null
+	 */
+	public ArchaeologySystem(String mapFile, int rows, int cols) throws IOException {
+		tc = new TeamCollection();
+		players = new PlayerStore();
+		terrain = new Terrain(rows, cols, new MappedPlotStorage(mapFile, rows, cols));
+	}
+
+	/**
+	 * Creates a system whose terrain is the one already in an existing map file, without adding any plots.
+	 * @param mapFile Name of the map file.
+	 * @throws IOException if the map file cannot be read.
+	 * @pre mapFile != null
+	 */
+	public ArchaeologySystem(String mapFile) throws IOException {
+		MappedPlotStorage storage = new MappedPlotStorage(mapFile);
+		tc = new TeamCollection();
+		players = new PlayerStore();
+		terrain = new Terrain(storage.getRows(), storage.getCols(), storage);
+	}
+
 	// methods
 
+	/**
+	 * Makes the system safe to use from many threads at once, if it is not yet. The renderer of the ranking is created right away, so
+	 * threads never race its creation.
+	 * @pre no other thread is using the system
+	 */
+	public void makeConcurrent() {
+		if (isConcurrent())
+			return;
+		tc.makeConcurrent();
+		terrain.makeConcurrent();
+		getRankingRenderer();
+	}
+
+	/**
+	 * Splits the terrain in bands of rows, each dug by a worker thread of its own.
+	 * @param numberOfShards Number of bands to split the terrain in.
+	 * @throws IllegalStateException if the system is not concurrent.
+	 * @pre numberOfShards > 0 && the terrain is not sharded && no other thread is using the system
+	 */
+	public void shardTerrain(int numberOfShards) {
+		if (!isConcurrent())
+			throw new IllegalStateException(NOT_CONCURRENT);
+		shards = new ShardedTerrain(terrain, numberOfShards);
+	}
+
+	/**
+	 * Stops the workers of the bands of the terrain, if it is sharded, once every dig routed to them is done and its merit given. Digs
+	 * are done by the threads that dig from then on. Closing the system again does nothing.
+	 */
+	public void close() {
+		ShardedTerrain current = shards;
+		if (current != null)
+			current.close();
+	}
+
+	/**
+	 * Auxiliary method that waits for the digs routed to the bands of the terrain, if it is sharded, to be done and their merit given.
+	 */
+	private void awaitDigs() {
+		ShardedTerrain current = shards;
+		if (current != null)
+			current.awaitDigs();
+	}
+
+	/**
+	 * @return whether the system can be used from many threads at once or not.
+	 */
+	public boolean isConcurrent() {
+		return terrain.isConcurrent();
+	}
+
 	/**
 	 * Adds a team to the team collection.
 	 * @param team Team.
+	 * @return handle of the team.
 	 * @pre team != null
 	 */
-	public void addTeam(Team team) {
-		tc.addTeam(team);
+	public TeamHandle addTeam(Team team) {
+		return tc.addTeam(team);
+	}
+
+	/**
+	 * @return player store shared by the players of the teams of this system.
+	 */
+	public PlayerStore getPlayerStore() {
+		return players;
+	}
+
+	/**
+	 * Gets the handle of a team.
+	 * @param teamName name of the team.
+	 * @return handle of the team, or null if the team does not exist.
+	 * @pre teamName != null
+	 */
+	public TeamHandle getTeamHandle(String teamName) {
+		return tc.getHandle(teamName);
 	}
 
 	/**
@@ -44,55 +155,116 @@ public class ArchaeologySystem {
 		return tc.checkTeam(teamName);
 	}
 
+	/**
+	 * Checks if the team of a handle still exists or not.
+	 * @param team handle of the team.
+	 * @return whether the team of the handle still exists or not.
+	 * @pre team != null
+	 */
+	public boolean checkTeam(TeamHandle team) {
+		return tc.isValid(team);
+	}
+
 	/**
 	 * Starts the process of digging.
 	 * Moves a player to the desired location, and checks if the player has a license. If so, updates the player's merit and removes
 	 * any treasure from that location.
-	 * In the end, advances the order of the next player to dig.
+	 * In the end, advances the order of the next player to dig. Nothing is dug if there is no team with that name, which another thread
+	 * may have removed.
 	 * @param teamName name of the team.
 	 * @param jumpR jump that the player will do row-wise.
 	 * @param jumpC jump that the player will do column-wise.
 	 * @pre teamName != null && jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
 	 */
 	public void dig(String teamName, int jumpR, int jumpC) {
-		movePlayer(teamName, jumpR, jumpC);
-		if (hasLicense(teamName)) {
-			updateMerit(teamName);
-			removeTreasure(teamName);
+		TeamHandle team = tc.getHandle(teamName);
+		if (team != null)
+			dig(team, jumpR, jumpC);
+	}
+
+	/**
+	 * Starts the process of digging for the team of a handle, while holding the lock of the team.
+	 * @param team handle of the team.
+	 * @param jumpR jump that the player will do row-wise.
+	 * @param jumpC jump that the player will do column-wise.
+	 * @return whether the team of the handle still existed and dug or not.
+	 * @pre team != null && jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
+	 */
+	public boolean dig(TeamHandle team, int jumpR, int jumpC) {
+		tc.lockTeam(team.getSlot());
+		try {
+			if (!tc.isValid(team))
+				return false;
+			dig(team, jumpR, jumpC, team.getSlot());
+			return true;
+		} finally {
+			tc.unlockTeam(team.getSlot());
 		}
-		nextPlayer(teamName);
+	}
+
+	/**
+	 * Auxiliary method that digs for a team.
+	 * @param team handle of the team.
+	 * @param jumpR jump that the player will do row-wise.
+	 * @param jumpC jump that the player will do column-wise.
+	 * @param number number of the team.
+	 * @pre tc.isValid(team) && number == team.getSlot() &&
+	 * jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
+	 */
+	private void dig(TeamHandle team, int jumpR, int jumpC, int number) {
+		movePlayer(number, jumpR, jumpC);
+		if (hasLicense(number))
+			collectPlot(team, number);
+		nextPlayer(number);
 	}
 
 	/**
 	 * Auxiliary method that checks if the current player to dig has a license.
-	 * @param teamName name of the team.
+	 * @param number number of the team.
 	 * @return whether the current player has a license or not.
-	 * @pre teamName != null
+	 * @pre tc.hasTeam(number)
 	 */
-	private boolean hasLicense(String teamName) {
-		int number = tc.getTeamByName(teamName);
+	private boolean hasLicense(int number) {
 		return tc.currentPlayerHasLicense(number);
 	}
 
 	/**
-	 * Removes a team from the team collection.
+	 * Removes a team from the team collection, if there is a team with that name.
 	 * @param teamName name of the team.
 	 * @pre teamName != null
 	 */
 	public void removeTeam(String teamName) {
-		int number = tc.getTeamByName(teamName);
-		tc.removeFrom(number);
+		TeamHandle team = tc.getHandle(teamName);
+		if (team != null)
+			removeTeam(team);
+	}
+
+	/**
+	 * Removes the team of a handle from the team collection, while holding the lock of the team.
+	 * @param team handle of the team.
+	 * @return whether the team of the handle still existed and was removed or not.
+	 * @pre team != null
+	 */
+	public boolean removeTeam(TeamHandle team) {
+		tc.lockTeam(team.getSlot());
+		try {
+			if (!tc.isValid(team))
+				return false;
+			tc.removeFrom(team.getSlot());
+			return true;
+		} finally {
+			tc.unlockTeam(team.getSlot());
+		}
 	}
 
 	/**
 	 * Auxiliary method that changes a player's location.
-	 * @param teamName name of the team.
+	 * @param number number of the team.
 	 * @param jumpR jump that the player will do row-wise.
 	 * @param jumpC jump that the player will do column-wise.
-	 * @pre teamName != null && jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
+	 * @pre tc.hasTeam(number) && jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
 	 */
-	private void movePlayer(String teamName, int jumpR, int jumpC) {
-		int number = tc.getTeamByName(teamName);
+	private void movePlayer(int number, int jumpR, int jumpC) {
 		int row = tc.getLocationR(number);
 		int col = tc.getLocationC(number);
 		if (row + jumpR >= terrain.getRows() || col + jumpC >= terrain.getCols() || row + jumpR < ZERO || col + jumpC < ZERO)
@@ -105,47 +277,78 @@ public class ArchaeologySystem {
 	/**
 	 * Checks if a team is in play or not.
 	 * @param teamName name of the team.
-	 * @return whether a team is in play or not.
+	 * @return whether there is a team with that name and it is in play or not.
 	 * @pre teamName != null
 	 */
 	public boolean teamIsInPlay(String teamName) {
-		int number = tc.getTeamByName(teamName);
-		return tc.isInPlay(number);
+		TeamHandle team = tc.getHandle(teamName);
+		return team != null && teamIsInPlay(team);
 	}
 
 	/**
-	 * Auxiliary method that updates a player's merit.
-	 * @param teamName name of the team.
-	 * @pre teamName != null
+	 * Checks if the team of a handle is in play or not, while holding the lock of the team.
+	 * @param team handle of the team.
+	 * @return whether the team still exists and is in play or not.
+	 * @pre team != null
 	 */
-	private void updateMerit(String teamName) {
-		int number = tc.getTeamByName(teamName);
-		int row = tc.getLocationR(number);
-		int col = tc.getLocationC(number);
-		int treasureWorth = terrain.getWorth(row, col);
-		tc.updateTreasureMerit(number, terrain.getTimesDug(row, col) * PENALTY);
-		tc.updateTreasureMerit(number, treasureWorth);
+	public boolean teamIsInPlay(TeamHandle team) {
+		tc.lockTeam(team.getSlot());
+		try {
+			return tc.isValid(team) && tc.isInPlay(team.getSlot());
+		} finally {
+			tc.unlockTeam(team.getSlot());
+		}
 	}
 
 	/**
-	 * Auxiliary method that removes the treasure from a certain location.
-	 * @param teamName name of the team.
-	 * @pre teamName != null
+	 * Auxiliary method that digs the plot of the current player, updating the player's merit with the penalty for the times the plot
+	 * was dug before and with the treasure collected. The plot is dug in a single atomic step, so a treasure is only collected once
+	 * even when other teams dig the same plot at the same time. If the terrain is sharded, the dig is routed to the worker of its band
+	 * and the merit is given by the coordinator, unless the bands were closed, in which case the plot is dug right away.
+	 * @param team handle of the team.
+	 * @param number number of the team.
+	 * @pre tc.isValid(team) && number == team.getSlot()
 	 */
-	private void removeTreasure(String teamName) {
-		int number = tc.getTeamByName(teamName);
+	private void collectPlot(TeamHandle team, int number) {
 		int row = tc.getLocationR(number);
 		int col = tc.getLocationC(number);
-		terrain.removeTreasure(row, col);
+		ShardedTerrain current = shards;
+		if (current != null) {
+			int player = tc.getCurrentPlayer(number);
+			if (current.dig(row, col, plot -> collectMerit(team, player, plot)))
+				return;
+		}
+		long plot = terrain.dig(row, col);
+		tc.updateTreasureMerit(number, PlotStorage.timesDugOf(plot) * PENALTY);
+		tc.updateTreasureMerit(number, PlotStorage.worthOf(plot));
+	}
+
+	/**
+	 * Auxiliary method, run by the coordinator of the bands of the terrain, that gives the merit of a dig to the player that dug,
+	 * while holding the lock of the team. The merit is dropped if the team was removed meanwhile.
+	 * @param team handle of the team.
+	 * @param player index in the team of the player that dug.
+	 * @param plot the plot as it was before being dug, packed as in the plot storage.
+	 * @pre team != null
+	 */
+	private void collectMerit(TeamHandle team, int player, long plot) {
+		tc.lockTeam(team.getSlot());
+		try {
+			if (!tc.isValid(team))
+				return;
+			tc.updatePlayerMerit(team.getSlot(), player, PlotStorage.timesDugOf(plot) * PENALTY);
+			tc.updatePlayerMerit(team.getSlot(), player, PlotStorage.worthOf(plot));
+		} finally {
+			tc.unlockTeam(team.getSlot());
+		}
 	}
 
 	/**
 	 * Auxiliary method that advances the order of the next player to dig.
-	 * @param teamName name of the team.
-	 * @pre teamName != null
+	 * @param number number of the team.
+	 * @pre tc.hasTeam(number)
 	 */
-	private void nextPlayer(String teamName) {
-		int number = tc.getTeamByName(teamName);
+	private void nextPlayer(int number) {
 		tc.advancePlayer(number);
 	}
 
@@ -166,12 +369,29 @@ public class ArchaeologySystem {
 	}
 
 	/**
-	 * @return combined value of treasures in the terrain.
+	 * Finishes loading the terrain, once every plot was added, so a terrain kept in a map file is never changed by digs.
+	 * @throws IOException if the terrain cannot finish loading.
+	 */
+	public void finishTerrain() throws IOException {
+		terrain.finishLoading();
+	}
+
+	/**
+	 * @return combined value of treasures in the terrain, read without any lock.
 	 */
 	public int getWealth() {
+		awaitDigs();
 		return terrain.getWealth();
 	}
 
+	/**
+	 * @return whether there are treasures left to discover in the terrain.
+	 */
+	public boolean hasRemainingTreasures() {
+		awaitDigs();
+		return terrain.getRemainingTreasures() > ZERO;
+	}
+
 	/**
 	 * @return number of teams in the team collection.
 	 */
@@ -183,23 +403,119 @@ public class ArchaeologySystem {
 	 * @return ordered team iterator.
 	 */
 	public TeamIterator getOrderedTeamIterator() {
+		awaitDigs();
 		return tc.getOrderedTeamIterator();
 	}
 
 	/**
-	 * @return ordered player iterator.
+	 * Gets a consistent snapshot of the ranking, which readers can use while teams keep digging in other threads.
+	 * @return snapshot of the ranking.
+	 */
+	public RankingSnapshot getRankingSnapshot() {
+		awaitDigs();
+		return tc.getRankingSnapshot();
+	}
+
+	/**
+	 * @return version of the ranking, which increases whenever a team changes in a way that can change the ranking.
+	 */
+	public long getRankingVersion() {
+		return tc.getVersion();
+	}
+
+	/**
+	 * Gets the renderer of the ranking, creating it the first time it is needed.
+	 * @return renderer of the ranking.
+	 */
+	public RankingRenderer getRankingRenderer() {
+		awaitDigs();
+		if (rankingRenderer == null)
+			rankingRenderer = new RankingRenderer(this);
+		return rankingRenderer;
+	}
+
+	/**
+	 * @param k number of teams to get.
+	 * @return ordered team iterator with, at most, the k best teams.
+	 * @pre k >= 0
+	 */
+	public TeamIterator getTopTeams(int k) {
+		awaitDigs();
+		return tc.getTopTeams(k);
+	}
+
+	/**
+	 * @return star player of a team, or null if there is no team with that name.
+	 * @param teamName name of the team.
+	 * @pre teamName != null
+	 */
+	public Player getStarPlayer(String teamName) {
+		TeamHandle team = tc.getHandle(teamName);
+		if (team == null)
+			return null;
+		return getStarPlayer(team);
+	}
+
+	/**
+	 * @return star player of the team of a handle, found while holding the lock of the team, or null if the team no longer exists.
+	 * @param team handle of the team.
+	 * @pre team != null
+	 */
+	public Player getStarPlayer(TeamHandle team) {
+		awaitDigs();
+		tc.lockTeam(team.getSlot());
+		try {
+			if (!tc.isValid(team))
+				return null;
+			return tc.getStarPlayer(team.getSlot());
+		} finally {
+			tc.unlockTeam(team.getSlot());
+		}
+	}
+
+	/**
+	 * @return ordered player iterator, or null if there is no team with that name.
 	 * @param teamName name of the team.
 	 * @pre teamName != null
 	 */
 	public PlayerIterator getOrderedPlayerIterator(String teamName) {
-		int number = tc.getTeamByName(teamName);
-		return tc.getOrderedPlayerIterator(number);
+		TeamHandle team = tc.getHandle(teamName);
+		if (team == null)
+			return null;
+		return getOrderedPlayerIterator(team);
+	}
+
+	/**
+	 * @return ordered player iterator of the team of a handle, made while holding the lock of the team, or null if the team no longer
+	 * exists.
+	 * @param team handle of the team.
+	 * @pre team != null
+	 */
+	public PlayerIterator getOrderedPlayerIterator(TeamHandle team) {
+		awaitDigs();
+		tc.lockTeam(team.getSlot());
+		try {
+			if (!tc.isValid(team))
+				return null;
+			return tc.getOrderedPlayerIterator(team.getSlot());
+		} finally {
+			tc.unlockTeam(team.getSlot());
+		}
+	}
+
+	/**
+	 * @return renderer of the terrain.
+	 */
+	public TerrainRenderer getTerrainRenderer() {
+		awaitDigs();
+		return terrain.getRenderer();
 	}
 
 	/**
-	 * @return boolean two-dimensional array containing information about the existence of treasure of each plot of the terrain.
+	 * @return read-only treasure map with the existence of treasure of each plot of the terrain.
 	 */
-	public boolean[][] getTreasureMap() {
-		return terrain.treasureMap();
+	public TreasureMap getTreasureMap() {
+		awaitDigs();
+		return terrain.getTreasureMap();
 	}
 }
@@ -0,0 +1,262 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.InputMismatchException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Serves a contest to many sessions over a Unix domain socket. Each session speaks the same command language as the standard input,
+ * against the same system, which must be concurrent. A single selector thread accepts the sessions and reads and writes all of them
+ * without blocking, so a session waiting for its next command only costs its buffers and never holds a thread. The complete lines a
+ * session sends are executed by a fixed pool of workers, one batch at a time per session, and their output is written back by the
+ * selector thread once the batch is done, before the session is read again.
+ */
+
+public class ContestServer {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int SESSION_BUFFER_SIZE = 1 << 12;
+	private static final int MAX_INPUT_SIZE = 1 << 20;
+	private static final long CLOSE_TIMEOUT_SECONDS = 10;
+	private static final String SELECTOR_NAME = "contest-selector";
+	private static final String WORKER_NAME = "contest-worker-";
+
+	// instance variables
+
+	private ArchaeologySystem as;
+	private Path socketPath;
+	private ServerSocketChannel server;
+	private Selector selector;
+	private ExecutorService workers;
+	private Queue<SelectionKey> finished;
+	private Thread selectorThread;
+	private volatile boolean closed;
+
+	// constructors
+
+	/**
+	 * Creates a server listening on a Unix domain socket, replacing any socket file left at its path, with one worker per processor.
+	 * @param as Concurrent system to serve.
+	 * @param socketPath Path of the socket.
+	 * @throws IOException if the socket cannot be created.
+	 * @pre as != null && as.isConcurrent() && socketPath != null
+	 */
+	public ContestServer(ArchaeologySystem as, String socketPath) throws IOException {
+		this.as = as;
+		this.socketPath = Path.of(socketPath);
+		Files.deleteIfExists(this.socketPath);
+		selector = Selector.open();
+		server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(this.socketPath));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		AtomicInteger numberOfWorkers = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+			Thread worker = new Thread(task, WORKER_NAME + numberOfWorkers.getAndIncrement());
+			worker.setDaemon(true);
+			return worker;
+		});
+		finished = new ConcurrentLinkedQueue<>();
+		closed = false;
+	}
+
+	// methods
+
+	/**
+	 * Starts serving sessions, in the selector thread.
+	 */
+	public void start() {
+		selectorThread = new Thread(this::select, SELECTOR_NAME);
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Auxiliary method that waits for sessions to be accepted, read or written, and for batches of commands to finish, until the server
+	 * is closed, closing every session afterwards.
+	 */
+	private void select() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(SESSION_BUFFER_SIZE);
+		try {
+			while (!closed) {
+				selector.select();
+				for (SelectionKey key : selector.selectedKeys()) {
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept();
+					else if (key.isReadable())
+						read(key, buffer);
+					else if (key.isWritable())
+						write(key);
+				}
+				selector.selectedKeys().clear();
+				SelectionKey key = finished.poll();
+				while (key != null) {
+					write(key);
+					key = finished.poll();
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			for (SelectionKey key : selector.keys())
+				closeQuietly(key.channel());
+			closeQuietly(selector);
+		}
+	}
+
+	/**
+	 * Auxiliary method that accepts a session, if there is one waiting, and starts reading it.
+	 * @throws IOException if the session cannot be registered.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new ContestSession(channel));
+	}
+
+	/**
+	 * Auxiliary method that reads a session and, if it has complete lines, executes them in a worker. A session that ends its input
+	 * with nothing left to execute or that sends too long a line is closed.
+	 * @param key Key of the session.
+	 * @param buffer Buffer where to read.
+	 */
+	private void read(SelectionKey key, ByteBuffer buffer) {
+		ContestSession session = (ContestSession) key.attachment();
+		try {
+			int size = session.read(buffer);
+			if (session.isReady())
+				execute(key, session);
+			else if (session.isOver() || size > MAX_INPUT_SIZE)
+				close(key);
+		} catch (IOException e) {
+			close(key);
+		}
+	}
+
+	/**
+	 * Auxiliary method that hands the complete lines of a session to a worker, not reading the session until they are executed.
+	 * @param key Key of the session.
+	 * @param session Session ready to execute.
+	 */
+	private void execute(SelectionKey key, ContestSession session) {
+		byte[] commands = session.takeCommands();
+		key.interestOps(ZERO);
+		workers.execute(() -> executeCommands(key, session, commands));
+	}
+
+	/**
+	 * Auxiliary method, run by a worker, that executes a batch of commands of a session and gives their output back to the selector
+	 * thread. A batch with a malformed command has its session closed once the output of the commands before it is written, as a
+	 * malformed command would end the standard input too.
+	 * @param key Key of the session.
+	 * @param session Session of the commands.
+	 * @param commands Commands to execute.
+	 */
+	private void executeCommands(SelectionKey key, ContestSession session, byte[] commands) {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(result);
+		boolean exit = true;
+		try {
+			InputReader in = new InputReader(new ByteArrayInputStream(commands), SESSION_BUFFER_SIZE);
+			exit = Main.commandExecuter(as, in, out);
+		} catch (InputMismatchException e) {
+			// the session sent a malformed command
+		} finally {
+			out.flush();
+			session.finishCommands(result.toByteArray(), exit);
+			finished.add(key);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Auxiliary method that writes the output of a session. Once all of it is written, the session is either closed, if it is over,
+	 * executed again, if it has more complete lines, or read again.
+	 * @param key Key of the session.
+	 */
+	private void write(SelectionKey key) {
+		if (!key.isValid())
+			return;
+		ContestSession session = (ContestSession) key.attachment();
+		try {
+			if (!session.write())
+				key.interestOps(SelectionKey.OP_WRITE);
+			else if (session.isOver())
+				close(key);
+			else if (session.isReady())
+				execute(key, session);
+			else
+				key.interestOps(SelectionKey.OP_READ);
+		} catch (IOException e) {
+			close(key);
+		}
+	}
+
+	/**
+	 * Auxiliary method that closes a session.
+	 * @param key Key of the session.
+	 */
+	private void close(SelectionKey key) {
+		key.cancel();
+		closeQuietly(key.channel());
+	}
+
+	/**
+	 * Stops accepting sessions, closes every open session, once the commands being executed are done, and removes the socket file.
+	 */
+	public void close() {
+		closed = true;
+		selector.wakeup();
+		workers.shutdown();
+		try {
+			if (selectorThread != null)
+				selectorThread.join();
+			workers.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		closeQuietly(server);
+		try {
+			Files.deleteIfExists(socketPath);
+		} catch (IOException e) {
+			// the socket file is left behind
+		}
+	}
+
+	/**
+	 * Auxiliary method that closes a channel or the selector, ignoring any error.
+	 * @param channel Channel or selector to close.
+	 */
+	private void closeQuietly(Closeable channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// it is already unusable
+		}
+	}
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Keeps the state of a session of the contest server: the bytes received that were not executed yet and the output still to be
+ * written. A session is only used by one thread at a time, either the selector thread of the server or the worker executing its
+ * commands, which hands it back through a queue, so a session needs no synchronization. Commands are executed a line at a time, so
+ * the bytes are only handed out up to the end of the last complete line, unless the session has ended its input.
+ */
+
+public class ContestSession {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int NONE = -1;
+	private static final int INPUT_SIZE = 1 << 8;
+
+	// instance variables
+
+	private SocketChannel channel;
+	private byte[] input;
+	private int inputSize;
+	private Deque<ByteBuffer> output;
+	private boolean executing;
+	private boolean inputEnded;
+	private boolean exited;
+
+	// constructors
+
+	/**
+	 * Creates a session for a channel just accepted.
+	 * @param channel Non-blocking channel of the session.
+	 * @pre channel != null
+	 */
+	public ContestSession(SocketChannel channel) {
+		this.channel = channel;
+		input = new byte[INPUT_SIZE];
+		inputSize = ZERO;
+		output = new ArrayDeque<>();
+		executing = false;
+		inputEnded = false;
+		exited = false;
+	}
+
+	// methods
+
+	/**
+	 * @return the channel of the session.
+	 */
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Reads what the channel has received into the input of the session, noting when the session has ended its input.
+	 * @param buffer Buffer where to read, shared by every session of the selector thread.
+	 * @return the number of bytes of input not executed yet.
+	 * @throws IOException if the channel cannot be read.
+	 * @pre buffer != null
+	 */
+	public int read(ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		int read = channel.read(buffer);
+		while (read > ZERO) {
+			if (inputSize + read > input.length)
+				input = Arrays.copyOf(input, Math.max(input.length * 2, inputSize + read));
+			buffer.flip();
+			buffer.get(input, inputSize, read);
+			inputSize += read;
+			buffer.clear();
+			read = channel.read(buffer);
+		}
+		if (read == NONE)
+			inputEnded = true;
+		return inputSize;
+	}
+
+	/**
+	 * Checks if the session can start executing more commands, which is when none are executing, all output was written, the session
+	 * did not exit and there is either a complete line or the rest of an ended input.
+	 * @return whether the session is ready to execute or not.
+	 */
+	public boolean isReady() {
+		return !executing && output.isEmpty() && !exited && (lastLineEnd() > ZERO || (inputEnded && inputSize > ZERO));
+	}
+
+	/**
+	 * Takes the input up to the end of the last complete line, or all of it if the session ended its input, and marks the session as
+	 * executing until the output of those commands is given back.
+	 * @return the commands to execute.
+	 * @pre isReady()
+	 */
+	public byte[] takeCommands() {
+		int end = inputEnded ? inputSize : lastLineEnd();
+		byte[] commands = Arrays.copyOf(input, end);
+		System.arraycopy(input, end, input, ZERO, inputSize - end);
+		inputSize -= end;
+		executing = true;
+		return commands;
+	}
+
+	/**
+	 * Auxiliary method that finds the end of the last complete line of the input.
+	 * @return the position just after the last line separator, or 0 if there is no complete line.
+	 */
+	private int lastLineEnd() {
+		for (int i = inputSize - ONE; i >= ZERO; i--)
+			if (input[i] == '\n')
+				return i + ONE;
+		return ZERO;
+	}
+
+	/**
+	 * Gives back the output of the commands executed, which is queued to be written.
+	 * @param result Output of the commands.
+	 * @param exit Whether the exit command was read or not, after which nothing else is executed.
+	 * @pre result != null
+	 */
+	public void finishCommands(byte[] result, boolean exit) {
+		if (result.length > ZERO)
+			output.add(ByteBuffer.wrap(result));
+		executing = false;
+		exited |= exit;
+	}
+
+	/**
+	 * Writes as much of the queued output as the channel takes.
+	 * @return whether all output was written or not.
+	 * @throws IOException if the channel cannot be written.
+	 */
+	public boolean write() throws IOException {
+		while (!output.isEmpty()) {
+			ByteBuffer next = output.peek();
+			channel.write(next);
+			if (next.hasRemaining())
+				return false;
+			output.poll();
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the session is over, which is when it exited or ended its input, and every command was executed and its output
+	 * written.
+	 * @return whether the session is over or not.
+	 */
+	public boolean isOver() {
+		return !executing && output.isEmpty() && (exited || (inputEnded && inputSize == ZERO));
+	}
+}
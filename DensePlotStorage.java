@@ -0,0 +1,90 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Plot storage that keeps every plot of the terrain in a flat primitive array, with the worth and the times dug of each plot packed
+ * in a single long. Once the storage is made concurrent, plots are dug with a compare-and-set on their long, so many threads can dig
+ * the plots at once without any lock and only one of the threads digging the same plot at the same time collects its treasure.
+ * Until then, plots are read and dug with plain accesses, which cost no more than the array itself.
+ */
+
+public class DensePlotStorage implements PlotStorage {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final VarHandle PLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// instance variables
+
+	private long[] plots;
+	private int cols;
+	private boolean isConcurrent;
+
+	// constructors
+
+	public DensePlotStorage(int rows, int cols) {
+		plots = new long[rows * cols];
+		this.cols = cols;
+		isConcurrent = false;
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that reads a packed plot, with acquire semantics if the storage is concurrent.
+	 * @param plot Index of the plot.
+	 * @return the packed plot.
+	 */
+	private long read(int plot) {
+		if (isConcurrent)
+			return (long) PLOTS.getAcquire(plots, plot);
+		return plots[plot];
+	}
+
+	public int getWorth(int plot) {
+		return PlotStorage.worthOf(read(plot));
+	}
+
+	public int getTimesDug(int plot) {
+		return PlotStorage.timesDugOf(read(plot));
+	}
+
+	public void setPlot(int plot, int worth, int timesDug) {
+		plots[plot] = PlotStorage.pack(worth, timesDug);
+	}
+
+	public long dig(int plot) {
+		long before;
+		if (!isConcurrent) {
+			before = plots[plot];
+			plots[plot] = PlotStorage.pack(ZERO, PlotStorage.timesDugOf(before) + ONE);
+			return before;
+		}
+		do
+			before = (long) PLOTS.getAcquire(plots, plot);
+		while (!PLOTS.compareAndSet(plots, plot, before, PlotStorage.pack(ZERO, PlotStorage.timesDugOf(before) + ONE)));
+		return before;
+	}
+
+	public void finishLoading() {
+	}
+
+	public void makeConcurrent() {
+		isConcurrent = true;
+	}
+
+	public int getStoredPlots() {
+		return plots.length;
+	}
+
+	public void copyTo(PlotStorage other) {
+		for (int i = ZERO; i < plots.length; i++) {
+			if (plots[i] != ZERO)
+				other.setPlot(i, PlotStorage.worthOf(plots[i]), PlotStorage.timesDugOf(plots[i]));
+		}
+	}
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.InputMismatchException;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Reads integers, tokens and lines from an input stream. Reads raw bytes into a buffer and parses integers directly from those bytes,
+ * only creating strings for tokens and lines.
+ */
+
+public class InputReader implements AutoCloseable {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int END_OF_INPUT = -1;
+	private static final int NO_COUNT = -1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int TEXT_SIZE = 64;
+	private static final int RADIX = 10;
+	private static final int MULTIPLY_LIMIT = Integer.MIN_VALUE / RADIX;
+
+	// instance variables
+
+	private InputStream in;
+	private byte[] buffer;
+	private int length, position;
+	private long bufferOffset;
+	private byte[] text;
+
+	// constructors
+
+	public InputReader(InputStream in) {
+		this(in, BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates an input reader with a buffer of a certain size, such as a small buffer for an interactive input.
+	 * @param in Input stream.
+	 * @param bufferSize Size of the buffer, in bytes.
+	 * @pre in != null && bufferSize > 0
+	 */
+	public InputReader(InputStream in, int bufferSize) {
+		this.in = in;
+		buffer = new byte[bufferSize];
+		length = ZERO;
+		position = ZERO;
+		bufferOffset = ZERO;
+		text = new byte[TEXT_SIZE];
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that gets the next byte of the input without consuming it, refilling the buffer when needed.
+	 * @return the next byte, or -1 if the input has ended.
+	 */
+	private int peek() {
+		if (position == length) {
+			bufferOffset += length;
+			try {
+				length = in.read(buffer, ZERO, buffer.length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			position = ZERO;
+			if (length <= ZERO) {
+				length = ZERO;
+				return END_OF_INPUT;
+			}
+		}
+		return buffer[position];
+	}
+
+	/**
+	 * Auxiliary method that checks if a byte is a whitespace.
+	 * @param b Byte to check.
+	 * @return whether the byte is a whitespace or not.
+	 */
+	private boolean isWhitespace(int b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+
+	/**
+	 * Auxiliary method that skips every whitespace before the next token.
+	 * @return the first byte of the next token, or -1 if the input has ended.
+	 */
+	private int skipWhitespace() {
+		int b = peek();
+		while (b != END_OF_INPUT && isWhitespace(b)) {
+			position++;
+			b = peek();
+		}
+		return b;
+	}
+
+	/**
+	 * Auxiliary method that adds a byte to the text being read, growing it when needed.
+	 * @param size Number of bytes already in the text.
+	 * @param b Byte to add.
+	 */
+	private void append(int size, int b) {
+		if (size == text.length) {
+			byte[] aux = new byte[text.length * 2];
+			System.arraycopy(text, ZERO, aux, ZERO, size);
+			text = aux;
+		}
+		text[size] = (byte) b;
+	}
+
+	/**
+	 * @return the number of bytes of the input consumed so far.
+	 */
+	public long getOffset() {
+		return bufferOffset + position;
+	}
+
+	/**
+	 * Checks if there is another token in the input, skipping any whitespace before it.
+	 * @return whether there is another token or not.
+	 */
+	public boolean hasNext() {
+		return skipWhitespace() != END_OF_INPUT;
+	}
+
+	/**
+	 * Reads the next integer, skipping any whitespace before it. The number is accumulated as a negative one, as those reach further,
+	 * and every digit is checked before it is added so the number never overflows.
+	 * @return the integer read.
+	 * @throws InputMismatchException if the next token is not an integer or does not fit in an integer.
+	 */
+	public int nextInt() {
+		int b = skipWhitespace();
+		boolean negative = false;
+		if (b == '-' || b == '+') {
+			negative = (b == '-');
+			position++;
+			b = peek();
+		}
+		if (b < '0' || b > '9')
+			throw new InputMismatchException();
+		int number = ZERO;
+		while (b >= '0' && b <= '9') {
+			if (number < MULTIPLY_LIMIT || number * RADIX < Integer.MIN_VALUE + (b - '0'))
+				throw new InputMismatchException();
+			number = number * RADIX - (b - '0');
+			position++;
+			b = peek();
+		}
+		if (b != END_OF_INPUT && !isWhitespace(b) || !negative && number == Integer.MIN_VALUE)
+			throw new InputMismatchException();
+		if (negative)
+			return number;
+		return -number;
+	}
+
+	/**
+	 * Reads a count given on the rest of the current line, skipping the blanks before it but never the line separator. Only a token
+	 * that starts with a digit is read, so any other token is left to be read next.
+	 * @return the count read, -1 if the rest of the line has no token starting with a digit, or 0 if that token is not a positive
+	 * number that fits in an integer, in which case it is consumed all the same.
+	 */
+	public int nextCount() {
+		int b = peek();
+		while (b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B) {
+			position++;
+			b = peek();
+		}
+		if (b < '0' || b > '9')
+			return NO_COUNT;
+		long number = ZERO;
+		while (b >= '0' && b <= '9') {
+			number = Math.min(number * RADIX + (b - '0'), Integer.MAX_VALUE + 1L);
+			position++;
+			b = peek();
+		}
+		boolean isCount = number <= Integer.MAX_VALUE;
+		while (b != END_OF_INPUT && !isWhitespace(b)) {
+			isCount = false;
+			position++;
+			b = peek();
+		}
+		return isCount ? (int) number : ZERO;
+	}
+
+	/**
+	 * Reads the next token, skipping any whitespace before it.
+	 * @return the token read, or null if the input has ended.
+	 */
+	public String next() {
+		int b = skipWhitespace();
+		if (b == END_OF_INPUT)
+			return null;
+		int size = ZERO;
+		while (b != END_OF_INPUT && !isWhitespace(b)) {
+			append(size++, b);
+			position++;
+			b = peek();
+		}
+		return new String(text, ZERO, size, Charset.defaultCharset());
+	}
+
+	/**
+	 * Reads the rest of the current line, consuming the line separator.
+	 * @return the rest of the line, without the line separator.
+	 */
+	public String nextLine() {
+		int size = ZERO;
+		int b = peek();
+		while (b != END_OF_INPUT && b != '\n') {
+			append(size++, b);
+			position++;
+			b = peek();
+		}
+		if (b == '\n')
+			position++;
+		if (size > ZERO && text[size - ONE] == '\r')
+			size--;
+		return new String(text, ZERO, size, Charset.defaultCharset());
+	}
+
+	/**
+	 * Skips the rest of the current line, consuming the line separator, without creating a string.
+	 */
+	public void skipLine() {
+		int b = peek();
+		while (b != END_OF_INPUT && b != '\n') {
+			position++;
+			b = peek();
+		}
+		if (b == '\n')
+			position++;
+	}
+
+	/**
+	 * Closes the input stream.
+	 */
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
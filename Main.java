@@ -1,4 +1,3 @@
-import java.util.Scanner;
 import java.io.*;
 
 /**
@@ -13,8 +12,11 @@ public class Main {
 	
 	private static final int ZERO = 0;
 	private static final int ONE = 1;
+	private static final int TWO = 2;
 	private static final String FILE_NAME = "teams.txt";
 	private static final String FILE_NOT_FOUND = "Ficheiro inexistente.";
+	private static final String UNREADABLE_FILE = "Ficheiro ilegivel.";
+	private static final String INVALID_MAP = "Mapa invalido.";
 	private static final String EXIT = "sair";
 	private static final String INVALID_JUMP = "Salto invalido";
 	private static final String INVALID_TEAM = "Equipa invalida";
@@ -29,218 +31,270 @@ public class Main {
 	private static final String WEALTH = "riqueza";
 	private static final String STAR = "estrela";
 	private static final String INVALID_COMMAND = "Comando invalido";
-	private static final String TREAURE_PLOT = "*";
-	private static final String EMPTY_PLOT = "-";
+	private static final String SERVER_OPTION = "-s";
+	private static final String NEW_MAP_OPTION = "-m";
+	private static final String OPEN_MAP_OPTION = "-a";
+	private static final String SHARDS_OPTION = "-f";
+	private static final String SHARDS_PATTERN = "[1-9][0-9]{0,8}";
+	private static final String INVALID_OPTION = "Opcao invalida.";
+	private static final String SERVER_UNAVAILABLE = "Servidor indisponivel.";
 	
 	// methods
 	
 	/**
-	 * Main method. Creates a scanner and reads two integer values for rows and columns respectively, and creates an the system class with that
-	 * information. Reads and creates the terrain and teams, and reads the input commands.
+	 * Main method. Creates an input reader and the system class with its terrain, reads and creates the teams, and reads the input commands.
+	 * Each option is followed by a value. With the new map option and the name of a map file, the terrain read from the input is kept
+	 * in a new map file with that name. With the open map option and the name of an existing map file, the terrain is the one loaded
+	 * into that map file, and the input starts with the teams instead. Digs never change a map file, so it can start any number of
+	 * contests.
+	 * With the server option and the path of a socket, the contest is also served to many sessions over that Unix domain socket while
+	 * the commands of the standard input are executed, until the standard input exits.
+	 * With the shards option and a positive number of bands, the system is made concurrent and its terrain is split in that many bands
+	 * of rows, each dug by a worker thread of its own. The bands are closed once the standard input exits, before the contest ends.
 	 */
 	public static void main(String[] args) {
-		Scanner in = new Scanner(System.in);
-		int rows = in.nextInt();
-		int cols = in.nextInt();
-		in.nextLine();
-		ArchaeologySystem as = new ArchaeologySystem(rows, cols);
-		readTerrain(as, in);
+		String socketPath = null;
+		String newMap = null;
+		String openMap = null;
+		int numberOfShards = ZERO;
+		for (int i = ZERO; i < args.length; i += TWO) {
+			String value = i + ONE < args.length ? args[i + ONE] : null;
+			if (value != null && args[i].equals(SERVER_OPTION))
+				socketPath = value;
+			else if (value != null && args[i].equals(NEW_MAP_OPTION))
+				newMap = value;
+			else if (value != null && args[i].equals(OPEN_MAP_OPTION))
+				openMap = value;
+			else if (value != null && args[i].equals(SHARDS_OPTION) && value.matches(SHARDS_PATTERN))
+				numberOfShards = Integer.parseInt(value);
+			else {
+				System.out.println(INVALID_OPTION);
+				return;
+			}
+		}
+		InputReader in = new InputReader(System.in);
+		ArchaeologySystem as;
+		try {
+			as = createSystem(newMap, openMap, in);
+		} catch (IOException | IllegalArgumentException e) {
+			System.out.println(INVALID_MAP);
+			in.close();
+			return;
+		}
 		int numberOfTeams = in.nextInt();
 		in.nextLine();
 		addAllTeams(as, numberOfTeams, in);
-		commandExecuter(as, in);
+		if (numberOfShards > ZERO) {
+			as.makeConcurrent();
+			as.shardTerrain(numberOfShards);
+		}
+		if (socketPath == null)
+			commandExecuter(as, in, System.out);
+		else
+			serve(as, socketPath, in);
 		in.close();
+		as.close();
 		exit(as);
 	}
+
+	/**
+	 * Makes the system concurrent and serves it over a Unix domain socket, while executing the commands of the standard input.
+	 * The server is closed, together with all its sessions, once the standard input exits.
+	 * @param as ArchaeologySystem object.
+	 * @param socketPath Path of the socket.
+	 * @param in Input reader of the standard input.
+	 * @pre as != null && socketPath != null && in != null
+	 */
+	private static void serve(ArchaeologySystem as, String socketPath, InputReader in) {
+		as.makeConcurrent();
+		ContestServer server;
+		try {
+			server = new ContestServer(as, socketPath);
+		} catch (IOException e) {
+			System.out.println(SERVER_UNAVAILABLE);
+			return;
+		}
+		server.start();
+		commandExecuter(as, in, System.out);
+		server.close();
+	}
+	
+	/**
+	 * Creates the system class. If an existing map file is given, the terrain is the one in that map file. Otherwise, reads two integer
+	 * values for rows and columns respectively, creates the system class with that information, kept in a new map file if one is
+	 * given, and reads the terrain.
+	 * @param newMap Name of a new map file where to keep the terrain read, or null.
+	 * @param openMap Name of an existing map file with the terrain, or null.
+	 * @param in Input reader.
+	 * @return ArchaeologySystem object.
+	 * @throws IOException if the map file cannot be created or read.
+	 * @throws IllegalArgumentException if the terrain read has too many plots.
+	 * @pre in != null
+	 */
+	private static ArchaeologySystem createSystem(String newMap, String openMap, InputReader in) throws IOException {
+		if (openMap != null)
+			return new ArchaeologySystem(openMap);
+		int rows = in.nextInt();
+		int cols = in.nextInt();
+		in.nextLine();
+		ArchaeologySystem as;
+		if (newMap != null)
+			as = new ArchaeologySystem(newMap, rows, cols);
+		else
+			as = new ArchaeologySystem(rows, cols);
+		readTerrain(as, in);
+		return as;
+	}
 	
 	 /**
 	 * Reads the terrain information and adds it to the terrain in the system class.
 	 * @param as ArchaeologySystem object.
-	 * @param in Scanner input.
+	 * @param in Input reader.
+	 * @throws IOException if the terrain cannot finish loading into its map file.
 	 * @pre as != null && in != null
 	 */
-	private static void readTerrain(ArchaeologySystem as, Scanner in) {
+	private static void readTerrain(ArchaeologySystem as, InputReader in) throws IOException {
 		for (int i = ZERO; i < as.getTerrainSize(); i++) {
 			as.addPlot(new Plot(in.nextInt()));
 		}
 		in.nextLine();
+		as.finishTerrain();
 	}
 	
 	/**
-	 * Reads the information concerning the teams and adds them to the system class.
+	 * Reads the selected team numbers and adds those teams, taken from the team catalog, to the system class. A missing teams file
+	 * and a teams file that cannot be read are reported differently, while a bad index of the teams file is never reported, as the
+	 * catalog then reads the teams file itself.
 	 * @param as ArchaeologySystem object.
 	 * @param numberOfTeams Number of participating teams.
-	 * @param in Scanner input.
+	 * @param in Input reader.
 	 * @pre as != null && numberOfTeams != null && in != null
 	 */
-	private static void addAllTeams(ArchaeologySystem as, int numberOfTeams, Scanner in) {
-		for (int i = ZERO; i < numberOfTeams; i++) {
-			Scanner inFile = createFileScanner();
-			int team = in.nextInt();
-			for (int j = ONE; j <= readNumberOfTeams(); j++) {
-				int numberOfPlayers = inFile.nextInt();
-				inFile.nextLine();
-				String teamName = inFile.nextLine();
-				if (team == j)
-					addSingularTeam(as, teamName, numberOfPlayers, inFile);
-				else {
-					for (int k = ZERO; k < numberOfPlayers; k++) {
-						inFile.nextLine();
-					}
-				}
+	private static void addAllTeams(ArchaeologySystem as, int numberOfTeams, InputReader in) {
+		int[] selected = new int[numberOfTeams];
+		for (int i = ZERO; i < numberOfTeams; i++)
+			selected[i] = in.nextInt();
+		try (TeamCatalog catalog = new TeamCatalog(FILE_NAME)) {
+			for (int i = ZERO; i < numberOfTeams; i++) {
+				Team team = null;
+				if (catalog.hasTeam(selected[i]))
+					team = catalog.createTeam(selected[i], as.getPlayerStore());
+				if (team != null)
+					as.addTeam(team);
 			}
-		}
-	}
-	
-	/**
-	 * Auxiliary method that reads the information concerning a singular team, and adds it to the system class.
-	 * @param as ArchaeologySystem object.
-	 * @param teamName Name of a team.
-	 * @param numberOfPlayers Number of players in a team.
-	 * @param in Scanner input.
-	 * @pre as != null && numberOfPlayers != null && in != null
-	 */
-	private static void addSingularTeam(ArchaeologySystem as, String teamName, int numberOfPlayers, Scanner in) {
-		Team team = new Team(teamName, numberOfPlayers);
-		for (int i = ZERO; i < numberOfPlayers; i++) {
-			team.addPlayer(new Player(in.nextLine()));
-		}
-		as.addTeam(team);
-	}
-	
-	/**
-	 * Auxiliary method that reads the total number of teams in a file.
-	 * @return number of teams in file.
-	 */
-	private static int readNumberOfTeams() {
-		Scanner in = createFileScanner();
-		int number = ZERO;
-		while (in.hasNext()) {
-			int numberOfPlayers = in.nextInt();
-			for (int i = ZERO; i < numberOfPlayers + 2; i++) {
-				in.nextLine();
-			}
-			number++;
-		}
-		return number;
-	}
-	
-	/**
-	 * Auxiliary method that creates a scanner that reads from a file.
-	 * @return file scanner.	
-	 */
-	private static Scanner createFileScanner() {
-		Scanner in;
-		try {
-			in = new Scanner(new FileReader(FILE_NAME));
 		} catch (FileNotFoundException e) {
 			System.out.println(FILE_NOT_FOUND);
-			in = new Scanner(System.in);
+		} catch (IOException e) {
+			System.out.println(UNREADABLE_FILE);
 		}
-		return in;
 	}
 	
 	/**
-	 * Reads and executes commands.
+	 * Reads and executes commands until the input ends or the exit command is read, printing their results to an output stream.
+	 * Used both for the standard input and for each session of the contest server.
 	 * @param as ArchaeologySystem object.
-	 * @param in Scanner input.
-	 * @pre as != null && in != null
+	 * @param in Input reader.
+	 * @param out Stream where to print the results of the commands.
+	 * @return whether the exit command was read or not.
+	 * @pre as != null && in != null && out != null
 	 */
-	private static void commandExecuter(ArchaeologySystem as, Scanner in) {
+	public static boolean commandExecuter(ArchaeologySystem as, InputReader in, PrintStream out) {
 		String command = in.next();
-		while (!command.equals(EXIT)) {
-			commandSwitch(command, as, in);
+		while (command != null && !command.equals(EXIT)) {
+			commandSwitch(command, as, in, out);
 			command = in.next();
 		}
+		return command != null;
 	}
 
 	/**
 	 * Reads and verifies the name of a team and the jump values, and if both are valid, digs the terrain using those values.
-	 * If team is disqualified due to this command, prints out a warning informing that the team was disqualified.
+	 * If team is disqualified due to this command, prints out a warning informing that the team was disqualified. The team may be
+	 * removed by another session meanwhile, in which case it is only reported as expelled by the session that removed it.
 	 * @param as ArchaeologySystem object.
-	 * @param in Scanner input.
-	 * @pre as != null && in != null
+	 * @param in Input reader.
+	 * @param out Stream where to print.
+	 * @pre as != null && in != null && out != null
 	 */
-	private static void dig(ArchaeologySystem as, Scanner in) {
+	private static void dig(ArchaeologySystem as, InputReader in, PrintStream out) {
 		int jumpR = in.nextInt();
 		int jumpC = in.nextInt();
 		String teamName = in.nextLine().trim();
+		TeamHandle team = as.getTeamHandle(teamName);
 		if (jumpR == ZERO && jumpC == ZERO) {
-			System.out.println(INVALID_JUMP);
+			out.println(INVALID_JUMP);
 			return;
-		} else if (!as.checkTeam(teamName)) {
-			System.out.println(INVALID_TEAM);
+		} else if (team == null) {
+			out.println(INVALID_TEAM);
+			return;
+		} else if (!as.dig(team, jumpR, jumpC)) {
+			out.println(INVALID_TEAM);
 			return;
-		} else
-			as.dig(teamName, jumpR, jumpC);
-		if (!as.teamIsInPlay(teamName)) {
-			as.removeTeam(teamName);
-			System.out.println(teamName + WAS_EXPELLED);
 		}
+		if (!as.teamIsInPlay(team) && as.removeTeam(team))
+			out.println(teamName + WAS_EXPELLED);
 	}
 
 	/**
 	 * Reads and verifies the name of a team, and if the team is valid, prints out the name of the star player of said team.
 	 * @param as ArchaeologySystem object.
-	 * @param in Scanner input.
-	 * @pre as != null && in != null
+	 * @param in Input reader.
+	 * @param out Stream where to print.
+	 * @pre as != null && in != null && out != null
 	 */
-	private static void getStar(ArchaeologySystem as, Scanner in) {
+	private static void getStar(ArchaeologySystem as, InputReader in, PrintStream out) {
 		String teamName = in.nextLine().trim();
-		if (!as.checkTeam(teamName)) {
-			System.out.println(INVALID_TEAM);
-			return;
-		} else {
-			PlayerIterator it = as.getOrderedPlayerIterator(teamName);
-			Player player = it.next();
-			System.out.println("Estrela de " + teamName + ": " + player.getName());
-		}
+		TeamHandle team = as.getTeamHandle(teamName);
+		Player player = null;
+		if (team != null)
+			player = as.getStarPlayer(team);
+		if (player == null)
+			out.println(INVALID_TEAM);
+		else
+			out.println("Estrela de " + teamName + ": " + player.getName());
 	}
 
 	/**
 	 * Prints out the combined value of all treasures in the terrain.
 	 * @param as ArchaeologySystem object.
-	 * @pre as != null
+	 * @param out Stream where to print.
+	 * @pre as != null && out != null
 	 */
-	private static void wealth(ArchaeologySystem as) {
-		System.out.println(BURIED_VALUE + as.getWealth());
+	private static void wealth(ArchaeologySystem as, PrintStream out) {
+		out.println(BURIED_VALUE + as.getWealth());
 	}
 
 	/**
-	 * Checks if there are still teams in play, and if so, prints the teams ordered by their ranking.
+	 * Reads an optional number of teams, given on the same line, and checks if there are still teams in play. If so, prints either
+	 * that number of the best teams or all the teams, ordered by their ranking. Any other token after the command is read as the next
+	 * command, as it always was, and a token that starts with a digit but is not a number of teams is an invalid command.
 	 * @param as ArchaeologySystem object.
-	 * @pre as != null
+	 * @param in Input reader.
+	 * @param out Stream where to print.
+	 * @pre as != null && in != null && out != null
 	 */
-	private static void ranking(ArchaeologySystem as) {
+	private static void ranking(ArchaeologySystem as, InputReader in, PrintStream out) {
+		int k = in.nextCount();
 		if (as.getNumberOfTeams() == ZERO)
-			System.out.println(NO_REMAINING_TEAMS);
-		else {
-			TeamIterator it = as.getOrderedTeamIterator();
-			while (it.hasNext()) {
-				Team team = it.next();
-				System.out.println(
-						team.getName() + ": " + team.getScore() + " pts; " + team.getDisqualifiedArchaeologists()
-								+ " descl.; " + team.getLicensedArchaeologists() + " com lic.");
-			}
+			out.println(NO_REMAINING_TEAMS);
+		else if (k > ZERO)
+			as.getRankingRenderer().render(out, k);
+		else
+			as.getRankingRenderer().render(out);
+		if (k == ZERO) {
+			out.println(INVALID_COMMAND);
+			in.skipLine();
 		}
 	}
 
 	/**
 	 * Prints out the current state of the terrain.
 	 * @param as ArchaeologySystem object.
-	 * @pre as != null
+	 * @param out Stream where to print.
+	 * @pre as != null && out != null
 	 */
-	private static void printTerrain(ArchaeologySystem as) {
-		boolean[][] treasureMap = as.getTreasureMap();
-		for (int i = ZERO; i < treasureMap.length; i++) {
-			for (int j = ZERO; j < treasureMap[ZERO].length; j++) {
-				if (treasureMap[i][j])
-					System.out.print(TREAURE_PLOT);
-				else
-					System.out.print(EMPTY_PLOT);
-			}
-			System.out.println();
-		}
+	private static void printTerrain(ArchaeologySystem as, PrintStream out) {
+		as.getTerrainRenderer().render(out);
 	}
 
 	/**
@@ -251,63 +305,46 @@ public class Main {
 	private static void exit(ArchaeologySystem as) {
 		if (as.getNumberOfTeams() == ZERO)
 			System.out.println(NO_REMAINING_TEAMS);
-		else if (hasRemainingTreasures(as))
+		else if (as.hasRemainingTreasures())
 			System.out.println(REMAINING_TREASURES);
 		else
 			System.out.println(NO_REMAINING_TREASURES);
 	}
-	
-	/**
-	 * Auxiliary method that checks if there are any remaining treasures in the terrain.
-	 * @param as ArchaeologySystem object.
-	 * @return whether there are remaining treasures or not.
-	 * @pre as != null
-	 */
-	private static boolean hasRemainingTreasures(ArchaeologySystem as) {
-		boolean[][] treasureMap = as.getTreasureMap();
-		boolean hasRemainingTreasures = false;
-		for (int i = ZERO; i < treasureMap.length; i++) {
-			for (int j = ZERO; j < treasureMap[ZERO].length; j++) {
-				if (treasureMap[i][j])
-					hasRemainingTreasures = true;
-			}
-		}
-		return hasRemainingTreasures;
-	}
 
 	/**
 	 * Either executes a method or prints an invalid command warning depending on an input command.
 	 * @param command input command.
 	 * @param as ArchaeologySystem object.
-	 * @param in Scanner input.
-	 * @pre command != null && as != null && in != null
+	 * @param in Input reader.
+	 * @param out Stream where to print.
+	 * @pre command != null && as != null && in != null && out != null
 	 */
-	private static void commandSwitch(String command, ArchaeologySystem as, Scanner in) {
+	private static void commandSwitch(String command, ArchaeologySystem as, InputReader in, PrintStream out) {
 
 		switch (command) {
 
 		case TERRAIN:
-			printTerrain(as);
+			printTerrain(as, out);
 			break;
 
 		case RANKING:
-			ranking(as);
+			ranking(as, in, out);
 			break;
 
 		case DIG:
-			dig(as, in);
+			dig(as, in, out);
 			break;
 
 		case WEALTH:
-			wealth(as);
+			wealth(as, out);
 			break;
 
 		case STAR:
-			getStar(as, in);
+			getStar(as, in, out);
 			break;
 
 		default:
-			System.out.println(INVALID_COMMAND);
+			out.println(INVALID_COMMAND);
 			in.nextLine();
 			break;
 		}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Plot storage that keeps the plots of the terrain outside of the heap, in a memory-mapped map file. The file starts with a header
+ * holding a magic number, the number of rows and the number of columns, followed by the worth and the times dug of every plot.
+ * The file is mapped in chunks so that terrains larger than a single mapping can be used. While a new map file is being loaded, the
+ * plots are written directly to the file, and once it is loaded, the file is mapped again privately, as is an existing map file
+ * when it is opened. Digs then only change a private copy of the pages they touch, so the file always holds the terrain as it was
+ * loaded and every contest that opens it starts from that terrain.
+ * Terrains with more plots than the largest plot index are not valid.
+ * Plots are big-endian and aligned to their size, so the worth and the times dug of a plot can be read as one packed long. Once the
+ * storage is made concurrent, plots are dug with a compare-and-set on that long, and until then with a plain read and write.
+ */
+
+public class MappedPlotStorage implements PlotStorage {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int MAGIC = 0x41524331;
+	private static final int HEADER_SIZE = 16;
+	private static final int PLOT_SIZE = 8;
+	private static final int WORTH_OFFSET = 0;
+	private static final int TIMES_DUG_OFFSET = 4;
+	private static final int CHUNK_SHIFT = 27;
+	private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+	private static final String READ_WRITE = "rw";
+	private static final String INVALID_MAP = "Invalid map file: ";
+	private static final String MISSING_MAP = "Missing map file: ";
+	private static final VarHandle PLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	// instance variables
+
+	private String fileName;
+	private MappedByteBuffer[] chunks;
+	private int rows, cols;
+	private boolean isConcurrent;
+
+	// constructors
+
+	/**
+	 * Creates a new map file for a terrain with every plot empty, replacing any existing file. The plots set until the terrain finishes
+	 * loading are written to the file.
+	 * @param fileName Name of the map file.
+	 * @param rows Number of rows of the terrain.
+	 * @param cols Number of columns of the terrain.
+	 * @throws IOException if the map file cannot be created or the terrain has too many plots.
+	 */
+	public MappedPlotStorage(String fileName, int rows, int cols) throws IOException {
+		this.fileName = fileName;
+		this.rows = rows;
+		this.cols = cols;
+		isConcurrent = false;
+		checkSize();
+		try (RandomAccessFile file = new RandomAccessFile(fileName, READ_WRITE)) {
+			file.setLength(ZERO);
+			file.setLength(HEADER_SIZE + (long) rows * cols * PLOT_SIZE);
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, ZERO, HEADER_SIZE);
+			header.putInt(MAGIC).putInt(rows).putInt(cols);
+			mapChunks(channel, FileChannel.MapMode.READ_WRITE);
+		}
+	}
+
+	/**
+	 * Opens an existing map file, privately, so the terrain it holds is dug without ever changing the file. A private mapping can only
+	 * be made from a channel open for reading and writing, so the file is opened that way, once it is known to exist, as opening a
+	 * missing file that way would create it.
+	 * @param fileName Name of the map file.
+	 * @throws IOException if the map file does not exist, cannot be read or is not a valid map file.
+	 */
+	public MappedPlotStorage(String fileName) throws IOException {
+		this.fileName = fileName;
+		isConcurrent = false;
+		if (!Files.isRegularFile(Path.of(fileName)))
+			throw new IOException(MISSING_MAP + fileName);
+		try (RandomAccessFile file = new RandomAccessFile(fileName, READ_WRITE)) {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			int read = ZERO;
+			while (header.hasRemaining() && read >= ZERO)
+				read = channel.read(header);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+				throw new IOException(INVALID_MAP + fileName);
+			rows = header.getInt();
+			cols = header.getInt();
+			checkSize();
+			if (channel.size() < HEADER_SIZE + (long) rows * cols * PLOT_SIZE)
+				throw new IOException(INVALID_MAP + fileName);
+			mapChunks(channel, FileChannel.MapMode.PRIVATE);
+		}
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that checks that the dimensions of the terrain are not negative and that every plot has an index.
+	 * @throws IOException if the terrain has too many plots.
+	 */
+	private void checkSize() throws IOException {
+		if (rows < ZERO || cols < ZERO || (long) rows * cols > Integer.MAX_VALUE)
+			throw new IOException(INVALID_MAP + fileName);
+	}
+
+	/**
+	 * Auxiliary method that maps the plots of the map file, one chunk at a time.
+	 * @param channel Channel of the map file.
+	 * @param mode Mode of the mapping.
+	 * @throws IOException if the map file cannot be mapped.
+	 * @pre channel != null && mode != null
+	 */
+	private void mapChunks(FileChannel channel, FileChannel.MapMode mode) throws IOException {
+		long plots = (long) rows * cols;
+		chunks = new MappedByteBuffer[(int) ((plots + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		for (int i = ZERO; i < chunks.length; i++) {
+			long first = (long) i << CHUNK_SHIFT;
+			long size = Math.min(plots - first, ONE << CHUNK_SHIFT) * PLOT_SIZE;
+			chunks[i] = channel.map(mode, HEADER_SIZE + first * PLOT_SIZE, size);
+		}
+	}
+
+	/**
+	 * Writes the plots loaded to the map file and maps the file again privately, so digs never change it.
+	 * @throws IOException if the map file cannot be written or mapped again.
+	 */
+	public void finishLoading() throws IOException {
+		for (int i = ZERO; i < chunks.length; i++)
+			chunks[i].force();
+		try (RandomAccessFile file = new RandomAccessFile(fileName, READ_WRITE)) {
+			mapChunks(file.getChannel(), FileChannel.MapMode.PRIVATE);
+		}
+	}
+
+	/**
+	 * @return the number of rows of the terrain in the map file.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of columns of the terrain in the map file.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Auxiliary method that gets the chunk where a plot is mapped.
+	 * @param plot Index of the plot.
+	 * @return chunk of the plot.
+	 */
+	private MappedByteBuffer chunkOf(int plot) {
+		return chunks[plot >>> CHUNK_SHIFT];
+	}
+
+	/**
+	 * Auxiliary method that gets the position of a plot inside its chunk.
+	 * @param plot Index of the plot.
+	 * @return position of the plot.
+	 */
+	private int positionOf(int plot) {
+		return (plot & CHUNK_MASK) * PLOT_SIZE;
+	}
+
+	public int getWorth(int plot) {
+		return chunkOf(plot).getInt(positionOf(plot) + WORTH_OFFSET);
+	}
+
+	public int getTimesDug(int plot) {
+		return chunkOf(plot).getInt(positionOf(plot) + TIMES_DUG_OFFSET);
+	}
+
+	public void setPlot(int plot, int worth, int timesDug) {
+		MappedByteBuffer chunk = chunkOf(plot);
+		int position = positionOf(plot);
+		chunk.putInt(position + WORTH_OFFSET, worth);
+		chunk.putInt(position + TIMES_DUG_OFFSET, timesDug);
+	}
+
+	public long dig(int plot) {
+		MappedByteBuffer chunk = chunkOf(plot);
+		int position = positionOf(plot);
+		long before;
+		if (!isConcurrent) {
+			before = chunk.getLong(position);
+			chunk.putLong(position, PlotStorage.pack(ZERO, PlotStorage.timesDugOf(before) + ONE));
+			return before;
+		}
+		do
+			before = (long) PLOTS.getAcquire(chunk, position);
+		while (!PLOTS.compareAndSet(chunk, position, before, PlotStorage.pack(ZERO, PlotStorage.timesDugOf(before) + ONE)));
+		return before;
+	}
+
+	public void makeConcurrent() {
+		isConcurrent = true;
+	}
+
+	public int getStoredPlots() {
+		return rows * cols;
+	}
+
+	public void copyTo(PlotStorage other) {
+		for (int i = ZERO; i < rows * cols; i++) {
+			if (getWorth(i) != ZERO || getTimesDug(i) != ZERO)
+				other.setPlot(i, getWorth(i), getTimesDug(i));
+		}
+	}
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Table of interned names. Each different name is kept only once and is given a number, in the order names are first interned.
+ * Names are also given a collation rank, their position in the alphabetical order of the names of the table, so two names can be
+ * compared by comparing two integers. Ranks are computed for all the names at once, so names interned after the last computation
+ * are compared as strings until the string comparisons made since then outnumber the names, which is when ranks are computed again.
+ * Names are compared from many threads at once, so the string comparisons are counted atomically and the ranks are computed by one
+ * thread at a time, only if no other thread computed them for every name meanwhile.
+ */
+
+public class NameTable {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int INITIAL_CAPACITY = 16;
+
+	// instance variables
+
+	private Map<String, Integer> numbers;
+	private String[] names;
+	private int numberOfNames;
+	private volatile int[] ranks;
+	private AtomicInteger stringComparisons;
+
+	// constructors
+
+	public NameTable() {
+		numbers = new HashMap<String, Integer>();
+		names = new String[INITIAL_CAPACITY];
+		numberOfNames = ZERO;
+		ranks = new int[ZERO];
+		stringComparisons = new AtomicInteger();
+	}
+
+	// methods
+
+	/**
+	 * Interns a name, giving it a number if it was not interned before.
+	 * @param name Name to intern.
+	 * @return number of the name.
+	 * @pre name != null
+	 */
+	public int intern(String name) {
+		Integer number = numbers.get(name);
+		if (number != null)
+			return number;
+		if (numberOfNames == names.length) {
+			String[] aux = new String[names.length * 2];
+			System.arraycopy(names, ZERO, aux, ZERO, numberOfNames);
+			names = aux;
+		}
+		names[numberOfNames] = name;
+		numbers.put(name, numberOfNames);
+		return numberOfNames++;
+	}
+
+	/**
+	 * @param number Number of the name.
+	 * @return the name with that number.
+	 * @pre number >= 0 && number < getNumberOfNames()
+	 */
+	public String getName(int number) {
+		return names[number];
+	}
+
+	/**
+	 * @return number of different names in the table.
+	 */
+	public int getNumberOfNames() {
+		return numberOfNames;
+	}
+
+	/**
+	 * Compares two names of the table in alphabetical order, by their collation ranks if both have one.
+	 * @param first Number of a name.
+	 * @param second Number of the other name.
+	 * @return a negative number, zero or a positive number if the first name comes before, is the same or comes after the second.
+	 * @pre first >= 0 && first < getNumberOfNames() && second >= 0 && second < getNumberOfNames()
+	 */
+	public int compare(int first, int second) {
+		int[] current = ranks;
+		if (first < current.length && second < current.length)
+			return Integer.compare(current[first], current[second]);
+		if (stringComparisons.incrementAndGet() > numberOfNames)
+			computeRanks();
+		return names[first].compareTo(names[second]);
+	}
+
+	/**
+	 * Auxiliary method that computes the collation rank of every name in the table.
+	 */
+	private synchronized void computeRanks() {
+		if (ranks.length == numberOfNames) {
+			stringComparisons.set(ZERO);
+			return;
+		}
+		Integer[] order = new Integer[numberOfNames];
+		for (int i = ZERO; i < numberOfNames; i++)
+			order[i] = i;
+		String[] sorted = names;
+		Arrays.sort(order, (first, second) -> sorted[first].compareTo(sorted[second]));
+		int[] computed = new int[order.length];
+		for (int i = ZERO; i < order.length; i++)
+			computed[order[i]] = i;
+		ranks = computed;
+		stringComparisons.set(ZERO);
+	}
+}
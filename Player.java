@@ -1,6 +1,8 @@
 /**
  * @author Tiago Costa Sousa
  * @author Rodrigo Lemos Fernandes Handles the information concerning a player.
+ * A player is a view of one index of a player store, which keeps the actual information, so players are only created by the teams
+ * whose store keeps them, and any change made through a player is a change to its team.
  */
 
 public class Player {
@@ -8,26 +10,17 @@ public class Player {
 	// constants
 
 	private static final int ZERO = 0;
-	private static final int STARTING_LOCATION = -1;
 
 	// instance variables
 
-	private int merit;
-	private String name;
-	private boolean hasLicense;
-	private int locationR, locationC;
-	private int penalties;
+	private PlayerStore store;
+	private int index;
 
 	// constructors
 
-	public Player(String name) {
-		this.name = name;
-		merit = ZERO;
-		hasLicense = true;
-		locationR = STARTING_LOCATION;
-		locationC = STARTING_LOCATION;
-		penalties = ZERO;
-
+	public Player(PlayerStore store, int index) {
+		this.store = store;
+		this.index = index;
 	}
 
 	// methods
@@ -36,7 +29,7 @@ public class Player {
 	 * @return the merit of the player.
 	 */
 	public int getMerit() {
-		return merit;
+		return store.getMerit(index);
 	}
 
 	/**
@@ -47,8 +40,7 @@ public class Player {
 	 * @pre row != null && col != null && if (col == 0 || row == 0) col != row
 	 */
 	public void move(int row, int col) {
-		locationR += row;
-		locationC += col;
+		store.move(index, row, col);
 	}
 
 	/**
@@ -59,37 +51,35 @@ public class Player {
 	 * @pre merit != null
 	 */
 	public void updateMerit(int merit) {
-		this.merit += merit;
-		if (merit < ZERO)
-			penalties++;
+		store.updateMerit(index, merit);
 	}
 
 	/**
 	 * @return whether the player has a license or not.
 	 */
 	public boolean HasLicense() {
-		return hasLicense;
+		return store.hasLicense(index);
 	}
 
 	/**
 	 * @return the row location of the player.
 	 */
 	public int getLocationR() {
-		return locationR;
+		return store.getLocationR(index);
 	}
 
 	/**
 	 * @return the column location of the player.
 	 */
 	public int getLocationC() {
-		return locationC;
+		return store.getLocationC(index);
 	}
 
 	/**
 	 * Disqualifies a player, removing his license.
 	 */
 	public void disqualifyPlayer() {
-		hasLicense = false;
+		store.disqualifyPlayer(index);
 	}
 
 	/**
@@ -100,13 +90,15 @@ public class Player {
 	 * @pre other != null
 	 */
 	public int compareTo(Player other) {
+		if (store == other.store)
+			return store.compare(index, other.index);
 		int score = (getMerit() - other.getMerit());
 		if (score != ZERO)
 			return score;
 		else if (getPenalties() - other.getPenalties() != ZERO)
 			return -1 * (getPenalties() - other.getPenalties());
 		else
-			return this.name.compareTo(other.getName()) * -1;
+			return getName().compareTo(other.getName()) * -1;
 
 	}
 
@@ -114,13 +106,13 @@ public class Player {
 	 * @return the number of penalties of the player.
 	 */
 	public int getPenalties() {
-		return penalties;
+		return store.getPenalties(index);
 	}
 
 	/**
 	 * @return the name of the player.
 	 */
 	public String getName() {
-		return name;
+		return store.getName(index);
 	}
 }
@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Keeps the information of many players in columns, one primitive array per attribute, where each player is an index. Licenses are
+ * kept in a bit set and names are interned in a name table, so a player costs a few integers and no objects of its own. Names are
+ * compared through their collation ranks in the name table.
+ * Teams reserve a range of consecutive indices for their players. Players of different teams can be changed from different threads,
+ * since each player only changes its own elements of the columns, except for the bit set of licenses, which is changed while holding
+ * its lock.
+ */
+
+public class PlayerStore {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int STARTING_LOCATION = -1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	// instance variables
+
+	private NameTable names;
+	private int[] nameNumbers;
+	private int[] merit;
+	private int[] penalties;
+	private int[] locationR, locationC;
+	private BitSet licenses;
+	private int numberOfPlayers;
+
+	// constructors
+
+	public PlayerStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public PlayerStore(int capacity) {
+		capacity = Math.max(capacity, ONE);
+		names = new NameTable();
+		nameNumbers = new int[capacity];
+		merit = new int[capacity];
+		penalties = new int[capacity];
+		locationR = new int[capacity];
+		locationC = new int[capacity];
+		licenses = new BitSet(capacity);
+		numberOfPlayers = ZERO;
+	}
+
+	// methods
+
+	/**
+	 * Reserves a range of consecutive indices for new players, each with no merit, no penalties, a license and the starting location.
+	 * @param count Number of players.
+	 * @return index of the first player of the range.
+	 * @pre count >= 0
+	 */
+	public int allocate(int count) {
+		int first = numberOfPlayers;
+		if (first + count > merit.length)
+			grow(Math.max(first + count, merit.length * 2));
+		Arrays.fill(locationR, first, first + count, STARTING_LOCATION);
+		Arrays.fill(locationC, first, first + count, STARTING_LOCATION);
+		licenses.set(first, first + count);
+		numberOfPlayers += count;
+		return first;
+	}
+
+	/**
+	 * Auxiliary method that grows every column.
+	 * @param capacity New capacity of the columns.
+	 */
+	private void grow(int capacity) {
+		nameNumbers = Arrays.copyOf(nameNumbers, capacity);
+		merit = Arrays.copyOf(merit, capacity);
+		penalties = Arrays.copyOf(penalties, capacity);
+		locationR = Arrays.copyOf(locationR, capacity);
+		locationC = Arrays.copyOf(locationC, capacity);
+	}
+
+	/**
+	 * @return number of players in the store.
+	 */
+	public int getNumberOfPlayers() {
+		return numberOfPlayers;
+	}
+
+	/**
+	 * Sets the name of a player.
+	 * @param player Index of the player.
+	 * @param name Name of the player.
+	 * @pre player >= 0 && player < getNumberOfPlayers() && name != null
+	 */
+	public void setName(int player, String name) {
+		nameNumbers[player] = names.intern(name);
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return the name of the player.
+	 */
+	public String getName(int player) {
+		return names.getName(nameNumbers[player]);
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return the merit of the player.
+	 */
+	public int getMerit(int player) {
+		return merit[player];
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return the number of penalties of the player.
+	 */
+	public int getPenalties(int player) {
+		return penalties[player];
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return the row location of the player.
+	 */
+	public int getLocationR(int player) {
+		return locationR[player];
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return the column location of the player.
+	 */
+	public int getLocationC(int player) {
+		return locationC[player];
+	}
+
+	/**
+	 * @param player Index of the player.
+	 * @return whether the player has a license or not.
+	 */
+	public boolean hasLicense(int player) {
+		return licenses.get(player);
+	}
+
+	/**
+	 * Moves a player on the terrain.
+	 * @param player Index of the player.
+	 * @param row Amount of space the player will move row-wise.
+	 * @param col Amount of space the player will move column-wise.
+	 */
+	public void move(int player, int row, int col) {
+		locationR[player] += row;
+		locationC[player] += col;
+	}
+
+	/**
+	 * Updates the merit of a player, either by awarding merit, or penalizing merit.
+	 * @param player Index of the player.
+	 * @param merit amount of merit to update.
+	 */
+	public void updateMerit(int player, int merit) {
+		this.merit[player] += merit;
+		if (merit < ZERO)
+			penalties[player]++;
+	}
+
+	/**
+	 * Disqualifies a player, removing his license.
+	 * @param player Index of the player.
+	 */
+	public void disqualifyPlayer(int player) {
+		synchronized (licenses) {
+			licenses.clear(player);
+		}
+	}
+
+	/**
+	 * Compares a player with another player in the same way as Player.compareTo.
+	 * @param first Index of a player.
+	 * @param second Index of the other player.
+	 * @return result of comparison.
+	 */
+	public int compare(int first, int second) {
+		int score = merit[first] - merit[second];
+		if (score != ZERO)
+			return score;
+		else if (penalties[first] - penalties[second] != ZERO)
+			return -1 * (penalties[first] - penalties[second]);
+		else
+			return names.compare(nameNumbers[first], nameNumbers[second]) * -1;
+	}
+}
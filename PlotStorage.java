@@ -0,0 +1,97 @@
+import java.io.IOException;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Stores the worth and the times dug of the plots of a terrain. Plots are addressed by their index in the terrain, where the plot in
+ * row r and column c has index r * cols + c.
+ * Digging a plot returns the plot as it was before, packed in a long with the worth in the high 32 bits and the times dug in the low
+ * 32 bits, so the worth collected and the times the plot was dug before are taken in a single step.
+ */
+
+public interface PlotStorage {
+
+	/**
+	 * Packs the values of a plot in a long.
+	 * @param worth Value of the treasure in the plot.
+	 * @param timesDug Number of times the plot was dug.
+	 * @return the packed plot.
+	 */
+	static long pack(int worth, int timesDug) {
+		return ((long) worth << 32) | (timesDug & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param plot Packed plot.
+	 * @return the value of the treasure of a packed plot.
+	 */
+	static int worthOf(long plot) {
+		return (int) (plot >> 32);
+	}
+
+	/**
+	 * @param plot Packed plot.
+	 * @return the number of times a packed plot was dug.
+	 */
+	static int timesDugOf(long plot) {
+		return (int) plot;
+	}
+
+	/**
+	 * @param plot Index of the plot.
+	 * @return the value of the treasure in a certain plot.
+	 * @pre plot >= 0 && plot < size of the terrain
+	 */
+	int getWorth(int plot);
+
+	/**
+	 * @param plot Index of the plot.
+	 * @return the number of times a certain plot was dug.
+	 * @pre plot >= 0 && plot < size of the terrain
+	 */
+	int getTimesDug(int plot);
+
+	/**
+	 * Sets the values of a certain plot.
+	 * @param plot Index of the plot.
+	 * @param worth Value of the treasure in the plot.
+	 * @param timesDug Number of times the plot was dug.
+	 * @pre plot >= 0 && plot < size of the terrain
+	 */
+	void setPlot(int plot, int worth, int timesDug);
+
+	/**
+	 * Digs a certain plot, removing its treasure and increasing the times the plot was dug.
+	 * @param plot Index of the plot.
+	 * @return the plot as it was before being dug, packed.
+	 * @pre plot >= 0 && plot < size of the terrain
+	 */
+	long dig(int plot);
+
+	/**
+	 * Finishes loading the terrain, once every plot of the terrain was set. A storage kept in a file stops changing that file from then
+	 * on, so digs never change the terrain the file holds.
+	 * @throws IOException if the storage cannot stop changing its file.
+	 */
+	void finishLoading() throws IOException;
+
+	/**
+	 * Makes the storage safe to dig from many threads at once. Until then, plots are read and dug with plain accesses, as only one
+	 * thread uses the storage.
+	 * @throws IllegalStateException if the storage can never be made concurrent.
+	 * @pre no other thread is using the storage
+	 */
+	void makeConcurrent();
+
+	/**
+	 * @return the number of plots that are actually kept in memory.
+	 */
+	int getStoredPlots();
+
+	/**
+	 * Copies every stored plot to another plot storage.
+	 * @param other Plot storage to copy to.
+	 * @pre other != null
+	 */
+	void copyTo(PlotStorage other);
+}
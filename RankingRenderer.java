@@ -0,0 +1,131 @@
+import java.io.PrintStream;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Renders the ranking as text, one line per team with its score, its disqualified archaeologists and its licensed archaeologists.
+ * The rendered text is cached together with the version of the ranking it was rendered from, so printing the ranking again before
+ * any team changes neither walks the ranking nor builds any strings. The ranking is rendered from a snapshot, so the scores printed
+ * are the ones the teams were ordered by even when teams dig from other threads, and printing never holds up those teams. The text is
+ * only taken while synchronized and is printed afterwards, so a slow stream never holds up the prints to other streams. Printing only
+ * the best teams while the cached text is out of date renders just those teams, leaving the cache as it is.
+ */
+
+public class RankingRenderer {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final long NONE = -1;
+
+	// instance variables
+
+	private ArchaeologySystem as;
+	private String text;
+	private int[] lineEnds;
+	private int numberOfLines;
+	private long version;
+
+	// constructors
+
+	public RankingRenderer(ArchaeologySystem as) {
+		this.as = as;
+		text = null;
+		lineEnds = new int[ZERO];
+		numberOfLines = ZERO;
+		version = NONE;
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that renders the ranking again if it changed since it was last rendered.
+	 */
+	private void update() {
+		if (version == as.getRankingVersion())
+			return;
+		RankingSnapshot snapshot = as.getRankingSnapshot();
+		version = snapshot.getVersion();
+		lineEnds = new int[snapshot.getNumberOfTeams()];
+		numberOfLines = ZERO;
+		StringBuilder builder = new StringBuilder();
+		for (int i = ZERO; i < snapshot.getNumberOfTeams(); i++) {
+			appendLine(builder, snapshot.getName(i), snapshot.getScore(i), snapshot.getDisqualifiedArchaeologists(i),
+					snapshot.getLicensedArchaeologists(i));
+			lineEnds[numberOfLines++] = builder.length();
+		}
+		text = builder.toString();
+	}
+
+	/**
+	 * Auxiliary method that appends the line of a team to the text of the ranking.
+	 * @param builder Builder of the text.
+	 * @param name Name of the team.
+	 * @param score Score of the team.
+	 * @param disqualified Disqualified archaeologists of the team.
+	 * @param licensed Licensed archaeologists of the team.
+	 */
+	private void appendLine(StringBuilder builder, String name, int score, int disqualified, int licensed) {
+		builder.append(name).append(": ").append(score).append(" pts; ").append(disqualified).append(" descl.; ")
+				.append(licensed).append(" com lic.").append(System.lineSeparator());
+	}
+
+	/**
+	 * Prints every team of the ranking.
+	 * @param out Stream where to print the ranking.
+	 * @pre out != null
+	 */
+	public void render(PrintStream out) {
+		String rendered;
+		synchronized (this) {
+			update();
+			rendered = text;
+		}
+		out.print(rendered);
+	}
+
+	/**
+	 * Prints the best teams of the ranking. If the cached text is up to date, its first lines are printed, and otherwise only the best
+	 * teams are taken from the ranking and rendered. A concurrent system renders the whole ranking from a snapshot instead, as its best
+	 * teams are only known once a snapshot is taken.
+	 * @param out Stream where to print the ranking.
+	 * @param k Number of teams to print.
+	 * @pre out != null && k > 0
+	 */
+	public void render(PrintStream out, int k) {
+		String rendered;
+		int end;
+		synchronized (this) {
+			if (version == as.getRankingVersion() || as.isConcurrent()) {
+				update();
+				rendered = text;
+				end = k >= numberOfLines ? text.length() : lineEnds[k - ONE];
+			} else {
+				rendered = renderTopTeams(k);
+				end = rendered.length();
+			}
+		}
+		if (end == rendered.length())
+			out.print(rendered);
+		else
+			out.print(rendered.substring(ZERO, end));
+	}
+
+	/**
+	 * Auxiliary method that renders only the best teams of the ranking, without walking the rest of it.
+	 * @param k Number of teams to render.
+	 * @return the text of the best teams.
+	 * @pre k > 0 && !as.isConcurrent()
+	 */
+	private String renderTopTeams(int k) {
+		StringBuilder builder = new StringBuilder();
+		TeamIterator it = as.getTopTeams(k);
+		while (it.hasNext()) {
+			Team team = it.next();
+			appendLine(builder, team.getName(), team.getScore(), team.getDisqualifiedArchaeologists(),
+					team.getLicensedArchaeologists());
+		}
+		return builder.toString();
+	}
+}
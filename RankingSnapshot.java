@@ -0,0 +1,119 @@
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Immutable copy of the ranking at a certain version of the team collection, with the name, the score, the disqualified archaeologists
+ * and the licensed archaeologists of each team, in ranking order. A snapshot is published by the team collection and shared by every
+ * reader until the collection changes, so reading the ranking never waits for the teams that are digging.
+ */
+
+public class RankingSnapshot {
+
+	// constants
+
+	private static final int ZERO = 0;
+
+	// instance variables
+
+	private long version;
+	private String[] names;
+	private int[] scores;
+	private int[] disqualified;
+	private int[] licensed;
+	private int numberOfTeams;
+
+	// constructors
+
+	/**
+	 * Creates a snapshot by copying the teams of an ordered team iterator.
+	 * @param version Version of the team collection the teams were ordered in.
+	 * @param it Ordered team iterator.
+	 * @param numberOfTeams Number of teams of the iterator.
+	 * @pre it != null && numberOfTeams >= 0
+	 */
+	public RankingSnapshot(long version, TeamIterator it, int numberOfTeams) {
+		this.version = version;
+		names = new String[numberOfTeams];
+		scores = new int[numberOfTeams];
+		disqualified = new int[numberOfTeams];
+		licensed = new int[numberOfTeams];
+		this.numberOfTeams = ZERO;
+		while (it.hasNext()) {
+			Team team = it.next();
+			names[this.numberOfTeams] = team.getName();
+			scores[this.numberOfTeams] = team.getScore();
+			disqualified[this.numberOfTeams] = team.getDisqualifiedArchaeologists();
+			licensed[this.numberOfTeams] = team.getLicensedArchaeologists();
+			this.numberOfTeams++;
+		}
+	}
+
+	/**
+	 * Creates a snapshot from copies of the teams already in ranking order.
+	 * @param version Version of the team collection the teams were copied at.
+	 * @param names Names of the teams.
+	 * @param scores Scores of the teams.
+	 * @param disqualified Disqualified archaeologists of the teams.
+	 * @param licensed Licensed archaeologists of the teams.
+	 * @pre names, scores, disqualified and licensed have the same length
+	 */
+	public RankingSnapshot(long version, String[] names, int[] scores, int[] disqualified, int[] licensed) {
+		this.version = version;
+		this.names = names;
+		this.scores = scores;
+		this.disqualified = disqualified;
+		this.licensed = licensed;
+		numberOfTeams = names.length;
+	}
+
+	// methods
+
+	/**
+	 * @return the version of the team collection the snapshot was taken at.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the number of teams in the snapshot.
+	 */
+	public int getNumberOfTeams() {
+		return numberOfTeams;
+	}
+
+	/**
+	 * @param position Position of the team in the ranking, starting at zero.
+	 * @return the name of the team.
+	 * @pre position >= 0 && position < getNumberOfTeams()
+	 */
+	public String getName(int position) {
+		return names[position];
+	}
+
+	/**
+	 * @param position Position of the team in the ranking, starting at zero.
+	 * @return the score of the team.
+	 * @pre position >= 0 && position < getNumberOfTeams()
+	 */
+	public int getScore(int position) {
+		return scores[position];
+	}
+
+	/**
+	 * @param position Position of the team in the ranking, starting at zero.
+	 * @return the number of disqualified archaeologists of the team.
+	 * @pre position >= 0 && position < getNumberOfTeams()
+	 */
+	public int getDisqualifiedArchaeologists(int position) {
+		return disqualified[position];
+	}
+
+	/**
+	 * @param position Position of the team in the ranking, starting at zero.
+	 * @return the number of licensed archaeologists of the team.
+	 * @pre position >= 0 && position < getNumberOfTeams()
+	 */
+	public int getLicensedArchaeologists(int position) {
+		return licensed[position];
+	}
+}
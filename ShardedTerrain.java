@@ -0,0 +1,157 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Splits a terrain in bands of consecutive rows, each owned by a worker thread of its own. Digs are routed to the queue of the worker
+ * of the band of the plot dug, and the digging thread moves on without waiting, so digs in different bands run at once on different
+ * cores and the plots of a band stay in the cache of a single core. Each band counts the treasures it removes in a lane of the
+ * counters of the terrain that is its own. The plot as it was before being dug is handed to a single coordinator thread, which gives the
+ * merit to the team, so the merit of every dig is given in one place, one dig at a time.
+ * The queues of the workers and of the coordinator keep the order digs were routed in, so a reader that waits for the digs routed
+ * before it sees them all done, with their merit given, exactly as if they had been done by the digging thread. Once the terrain is
+ * closed, digs are refused and are done by the digging thread instead.
+ */
+
+public class ShardedTerrain {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final long CLOSE_TIMEOUT_SECONDS = 10;
+	private static final String WORKER_NAME = "terrain-shard-";
+	private static final String COORDINATOR_NAME = "terrain-coordinator";
+
+	// instance variables
+
+	private Terrain terrain;
+	private ExecutorService[] workers;
+	private ExecutorService coordinator;
+	private int rowsPerShard;
+	private boolean closed;
+
+	// constructors
+
+	/**
+	 * Creates the workers of the bands of a terrain and the coordinator, splitting the counters of the terrain in one lane per band.
+	 * Workers and the coordinator are daemon threads, so they never keep the program running.
+	 * @param terrain Terrain to split.
+	 * @param numberOfShards Number of bands to split the terrain in, at most one per row.
+	 * @pre terrain != null && terrain.isConcurrent() && numberOfShards > 0 && no other thread is using the terrain
+	 */
+	public ShardedTerrain(Terrain terrain, int numberOfShards) {
+		this.terrain = terrain;
+		int rows = Math.max(ONE, terrain.getRows());
+		numberOfShards = Math.min(numberOfShards, rows);
+		rowsPerShard = (rows + numberOfShards - ONE) / numberOfShards;
+		workers = new ExecutorService[(rows + rowsPerShard - ONE) / rowsPerShard];
+		terrain.splitCounters(workers.length);
+		for (int i = ZERO; i < workers.length; i++)
+			workers[i] = createExecutor(WORKER_NAME + i);
+		coordinator = createExecutor(COORDINATOR_NAME);
+		closed = false;
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that creates an executor with a single daemon thread.
+	 * @param name Name of the thread.
+	 * @return the executor created.
+	 */
+	private static ExecutorService createExecutor(String name) {
+		return Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @return the number of bands the terrain is split in.
+	 */
+	public int getNumberOfShards() {
+		return workers.length;
+	}
+
+	/**
+	 * Routes a dig to the worker of the band of its plot, without waiting for it. Once the worker digs the plot, the plot as it was
+	 * before is handed to the coordinator, which collects it.
+	 * @param row Row location of the plot to dig.
+	 * @param col Column location of the plot to dig.
+	 * @param collect Action run by the coordinator with the plot as it was before being dug, packed as in the plot storage.
+	 * @return whether the dig was routed or not, which it is not once the terrain is closed.
+	 * @pre row >= 0 && row < terrain.getRows() && col >= 0 && col < terrain.getCols() && collect != null
+	 */
+	public boolean dig(int row, int col, LongConsumer collect) {
+		int shard = row / rowsPerShard;
+		try {
+			workers[shard].execute(() -> {
+				long plot = terrain.dig(row, col, shard);
+				coordinator.execute(() -> collect.accept(plot));
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Waits until every dig routed before the call is done and collected. A marker is routed through every worker to the coordinator,
+	 * and as the queues keep their order, each marker is only reached once the digs before it are collected. Once the terrain is
+	 * closing, waits for it to be closed instead.
+	 * @pre the calling thread holds no lock of a team
+	 */
+	public void awaitDigs() {
+		CountDownLatch done = new CountDownLatch(workers.length);
+		try {
+			for (int i = ZERO; i < workers.length; i++)
+				workers[i].execute(() -> coordinator.execute(done::countDown));
+		} catch (RejectedExecutionException e) {
+			awaitTermination(coordinator);
+			return;
+		}
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops the workers and the coordinator once every dig routed is done and collected. Closing an already closed terrain does
+	 * nothing.
+	 * @pre the calling thread holds no lock of a team
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		for (int i = ZERO; i < workers.length; i++)
+			workers[i].shutdown();
+		for (int i = ZERO; i < workers.length; i++)
+			awaitTermination(workers[i]);
+		coordinator.shutdown();
+		awaitTermination(coordinator);
+	}
+
+	/**
+	 * Auxiliary method that waits for an executor to finish every task it was given and stop.
+	 * @param executor Executor to wait for.
+	 */
+	private void awaitTermination(ExecutorService executor) {
+		try {
+			boolean terminated = false;
+			while (!terminated)
+				terminated = executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Plot storage that only keeps the plots that have treasure or were already dug, in an open addressing hash table keyed by the
+ * index of the plot. Every plot that is not in the table is empty and was never dug.
+ * Digging may insert a plot and move the others, so this storage is only used by one thread at a time and can never be made
+ * concurrent: a terrain switches to a dense storage first.
+ */
+
+public class SparsePlotStorage implements PlotStorage {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+	private static final String NEVER_CONCURRENT = "Sparse storage cannot be made concurrent";
+
+	// instance variables
+
+	private int[] keys;
+	private int[] worth;
+	private int[] timesDug;
+	private int storedPlots;
+	private int shift;
+	private int cols;
+
+	// constructors
+
+	public SparsePlotStorage(int cols) {
+		this.cols = cols;
+		createTable(INITIAL_CAPACITY);
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that creates an empty table.
+	 * @param capacity Capacity of the table.
+	 * @pre capacity is a power of two
+	 */
+	private void createTable(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		worth = new int[capacity];
+		timesDug = new int[capacity];
+		storedPlots = ZERO;
+		shift = Integer.numberOfLeadingZeros(capacity) + ONE;
+	}
+
+	/**
+	 * Auxiliary method that finds the slot of a plot in the table, which is either the slot holding the plot or the empty slot where
+	 * it would be inserted. The search starts at the high bits of the index multiplied by the hash multiplier, as those depend on every
+	 * bit of the index, while the low bits only depend on the low bits of the index.
+	 * @param plot Index of the plot.
+	 * @return slot of the plot.
+	 */
+	private int slotOf(int plot) {
+		int mask = keys.length - ONE;
+		int slot = (plot * HASH_MULTIPLIER) >>> shift;
+		while (keys[slot] != EMPTY && keys[slot] != plot)
+			slot = (slot + ONE) & mask;
+		return slot;
+	}
+
+	/**
+	 * Auxiliary method that stores a plot in an empty slot, doubling the table first if it would be more than half full.
+	 * @param slot Empty slot of the plot.
+	 * @param plot Index of the plot.
+	 * @param worth Value of the treasure in the plot.
+	 * @param timesDug Number of times the plot was dug.
+	 */
+	private void insert(int slot, int plot, int worth, int timesDug) {
+		if ((storedPlots + ONE) * 2 > keys.length) {
+			grow();
+			slot = slotOf(plot);
+		}
+		keys[slot] = plot;
+		this.worth[slot] = worth;
+		this.timesDug[slot] = timesDug;
+		storedPlots++;
+	}
+
+	/**
+	 * Auxiliary method that doubles the capacity of the table, reinserting every stored plot.
+	 */
+	private void grow() {
+		int[] oldKeys = keys;
+		int[] oldWorth = worth;
+		int[] oldTimesDug = timesDug;
+		createTable(oldKeys.length * 2);
+		for (int i = ZERO; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				worth[slot] = oldWorth[i];
+				timesDug[slot] = oldTimesDug[i];
+				storedPlots++;
+			}
+		}
+	}
+
+	public int getWorth(int plot) {
+		int slot = slotOf(plot);
+		if (keys[slot] == EMPTY)
+			return ZERO;
+		return worth[slot];
+	}
+
+	public int getTimesDug(int plot) {
+		int slot = slotOf(plot);
+		if (keys[slot] == EMPTY)
+			return ZERO;
+		return timesDug[slot];
+	}
+
+	public void setPlot(int plot, int worth, int timesDug) {
+		int slot = slotOf(plot);
+		if (keys[slot] != EMPTY) {
+			this.worth[slot] = worth;
+			this.timesDug[slot] = timesDug;
+		} else if (worth != ZERO || timesDug != ZERO)
+			insert(slot, plot, worth, timesDug);
+	}
+
+	public long dig(int plot) {
+		int slot = slotOf(plot);
+		if (keys[slot] == EMPTY) {
+			insert(slot, plot, ZERO, ONE);
+			return PlotStorage.pack(ZERO, ZERO);
+		}
+		long before = PlotStorage.pack(worth[slot], timesDug[slot]);
+		worth[slot] = ZERO;
+		timesDug[slot]++;
+		return before;
+	}
+
+	public void finishLoading() {
+	}
+
+	public void makeConcurrent() {
+		throw new IllegalStateException(NEVER_CONCURRENT);
+	}
+
+	public int getStoredPlots() {
+		return storedPlots;
+	}
+
+	public void copyTo(PlotStorage other) {
+		for (int i = ZERO; i < keys.length; i++) {
+			if (keys[i] != EMPTY)
+				other.setPlot(keys[i], worth[i], timesDug[i]);
+		}
+	}
+}
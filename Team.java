@@ -1,7 +1,14 @@
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
 /**
  * @author Tiago Costa Sousa
  * @author Rodrigo Lemos Fernandes 
  * Handles the information concerning a singular team.
+ * The players of the team are a range of consecutive indices in a player store, and are numbered from zero inside the team.
+ * The licensed players are linked, in the order they were added, in a circular list of player indices, so the next player in
+ * line to dig is always found in constant time, however many players were disqualified. The licensed players are also kept in a
+ * player ranking, ordered from the star player down, which is updated whenever a player's merit changes or a player is disqualified.
  */
 
 public class Team {
@@ -9,26 +16,54 @@ public class Team {
 	// constants
 	
 	private static final int ZERO = 0;
-	private static final int ONE = 1;
+	private static final int NONE = -1;
 	
 	// instance variables
 
-	private Player[] playerList;
+	private PlayerStore players;
+	private int firstPlayer;
+	private int[] nextLicensed;
+	private int[] previousLicensed;
+	private int firstLicensed;
+	private NavigableSet<Integer> playerRanking;
 	private boolean isInPlay;
 	private String name;
+	private NameTable collation;
+	private int nameNumber;
+	private long order;
 	private int teamSize;
+	private int licensedPlayers;
+	private int disqualifiedPlayers;
 	private int score;
-	private Player nextInLine;
 	private int nextPlayer;
 
 	// constructors
 
 	public Team(String name, int size) {
+		this(name, size, new PlayerStore(size));
+	}
+
+	/**
+	 * Creates a team whose players are kept in a shared player store.
+	 * @param name Name of the team.
+	 * @param size Number of players of the team.
+	 * @param players Player store where the players of the team are kept.
+	 * @pre name != null && players != null
+	 */
+	public Team(String name, int size, PlayerStore players) {
 		this.name = name;
-		playerList = new Player[size];
+		collation = null;
+		order = ZERO;
+		this.players = players;
+		firstPlayer = players.allocate(size);
+		nextLicensed = new int[size];
+		previousLicensed = new int[size];
+		firstLicensed = NONE;
+		playerRanking = new TreeSet<Integer>((first, second) -> comparePlayers(first, second));
 		teamSize = ZERO;
+		licensedPlayers = ZERO;
+		disqualifiedPlayers = ZERO;
 		nextPlayer = ZERO;
-		nextInLine = null;
 		isInPlay = true;
 		score = ZERO;
 	}
@@ -36,15 +71,118 @@ public class Team {
 	// methods
 
 	/**
-	 * Adds a player to the team.
-	 * @param player Player to add.
-	 * @pre player != null
+	 * Adds a new player to the team, created straight in the player store of the team.
+	 * @param playerName Name of the player to add.
+	 * @return the player added, which is a view of the player in the player store.
+	 * @pre playerName != null && number of players added < size of the team
+	 */
+	public Player addPlayer(String playerName) {
+		Player player = new Player(players, storeIndex(teamSize));
+		players.setName(storeIndex(teamSize), playerName);
+		registerPlayer();
+		return player;
+	}
+	
+	/**
+	 * Auxiliary method that registers the player just stored after the last player of the team, counting it as licensed or
+	 * disqualified. A licensed player is linked at the end of the circular list of licensed players.
+	 */
+	private void registerPlayer() {
+		if (players.hasLicense(storeIndex(teamSize))) {
+			licensedPlayers++;
+			linkLicensed(teamSize);
+			playerRanking.add(teamSize);
+		}
+		else
+			disqualifiedPlayers++;
+		teamSize++;
+		nextPlayer = ZERO;
+	}
+	
+	/**
+	 * Auxiliary method that gets the index in the player store of a player of the team.
+	 * @param index Index of the player in the team.
+	 * @return index of the player in the player store.
+	 */
+	private int storeIndex(int index) {
+		return firstPlayer + index;
+	}
+	
+	/**
+	 * Auxiliary method that compares two players to order the player ranking. Better players come first and, between players that
+	 * compare the same, the one that was added first comes first.
+	 * @param first Index of a player in the team.
+	 * @param second Index of another player in the team.
+	 * @return result of comparison.
+	 */
+	private int comparePlayers(int first, int second) {
+		int comparison = players.compare(storeIndex(second), storeIndex(first));
+		if (comparison != ZERO)
+			return comparison;
+		return Integer.compare(first, second);
+	}
+	
+	/**
+	 * Auxiliary method that links a player at the end of the circular list of licensed players.
+	 * @param index Index of the player in the team.
+	 */
+	private void linkLicensed(int index) {
+		if (firstLicensed == NONE) {
+			firstLicensed = index;
+			nextLicensed[index] = index;
+			previousLicensed[index] = index;
+		}
+		else {
+			int last = previousLicensed[firstLicensed];
+			nextLicensed[last] = index;
+			previousLicensed[index] = last;
+			nextLicensed[index] = firstLicensed;
+			previousLicensed[firstLicensed] = index;
+		}
+	}
+	
+	/**
+	 * Auxiliary method that unlinks a player from the circular list of licensed players. The player keeps its link to the next
+	 * licensed player, so the turn can still advance from it.
+	 * @param index Index of the player in the team.
+	 */
+	private void unlinkLicensed(int index) {
+		nextLicensed[previousLicensed[index]] = nextLicensed[index];
+		previousLicensed[nextLicensed[index]] = previousLicensed[index];
+		if (firstLicensed == index) {
+			if (nextLicensed[index] == index)
+				firstLicensed = NONE;
+			else
+				firstLicensed = nextLicensed[index];
+		}
+	}
+	
+	/**
+	 * Interns the name of the team in a name table, which is then used to compare the name of this team with the names of the other
+	 * teams of the same table.
+	 * @param names Name table of the teams.
+	 * @pre names != null
 	 */
-	public void addPlayer(Player player) {
-		playerList[teamSize++] = player;
-		nextInLine = playerList[ZERO];
+	public void setCollation(NameTable names) {
+		collation = names;
+		nameNumber = names.intern(name);
 	}
 	
+	/**
+	 * Sets the order in which the team was added to its collection, which breaks the ties between teams that compare the same.
+	 * @param order Order of the team.
+	 */
+	public void setOrder(long order) {
+		this.order = order;
+	}
+
+	/**
+	 * @return the order in which the team was added to its collection.
+	 */
+	public long getOrder() {
+		return order;
+	}
+
 	/**
 	 * Compares this team to another team.
 	 * Compares by score. If score is the same, compares by number of disqualified archaeologists. If the number of disqualified archaeologists is the same,
@@ -62,10 +200,23 @@ public class Team {
 		else if (getLicensedArchaeologists() - other.getLicensedArchaeologists() != ZERO)
 			return -1 * (getLicensedArchaeologists() - other.getLicensedArchaeologists());
 		else
-			return this.name.compareTo(other.getName())*-1;
+			return compareNames(other);
 			
 	}
 
+	/**
+	 * Compares the name of this team to the name of another team, as the last step of compareTo. Names never change, so they can be
+	 * compared without holding the lock of either team.
+	 * @param other team to compare to.
+	 * @return result of comparison.
+	 * @pre other != null
+	 */
+	public int compareNames(Team other) {
+		if (collation != null && collation == other.collation)
+			return collation.compare(nameNumber, other.nameNumber)*-1;
+		return this.name.compareTo(other.getName())*-1;
+	}
+
 	/**
 	 * @return score of the team.
 	 */
@@ -77,11 +228,7 @@ public class Team {
 	 * Checks if there are any remaining players with a license in the team. If there aren't, removes the team from being in play.
 	 */
 	public void setInPlayStatus() {
-		isInPlay = false;
-		for (int i = ZERO; i < teamSize; i++) {
-			if(playerList[i].HasLicense())
-				isInPlay = true;
-		}
+		isInPlay = licensedPlayers > ZERO;
 	}
 	
 	/**
@@ -91,96 +238,106 @@ public class Team {
 	 * @pre rows != null && cols != null && if (cols == 0 || rows == 0) cols != rows
 	 */
 	public void movePlayer(int rows, int cols) {
-		nextInLine.move(rows, cols);
+		players.move(storeIndex(nextPlayer), rows, cols);
 	}
 	
 	/**
 	 * Removes the value of a player's merit from the score when that player is disqualified.
 	 */
 	public void removeDisqualifiedScore() {
-		score -= nextInLine.getMerit();
+		score -= players.getMerit(storeIndex(nextPlayer));
 	}
 	
 	/**
 	 * @return row location of the current player in line to dig.
 	 */
 	public int getLocationR() {
-		return nextInLine.getLocationR();
+		return players.getLocationR(storeIndex(nextPlayer));
 	}
 	
 	/**
 	 * @return column location of the current player in line to dig.
 	 */
 	public int getLocationC() {
-		return nextInLine.getLocationC();
+		return players.getLocationC(storeIndex(nextPlayer));
 	}
 	
 	/**
-	 * Updates the merit of the current player in line to dig and updates the score of the team accordingly.
+	 * Updates the merit of the current player in line to dig and updates the score of the team accordingly, repositioning the player
+	 * in the player ranking.
 	 * @param merit Merit to add.
 	 */
 	public void updateMerit(int merit) {
-		nextInLine.updateMerit(merit);
+		boolean isRanked = playerRanking.remove(nextPlayer);
+		players.updateMerit(storeIndex(nextPlayer), merit);
+		if (isRanked)
+			playerRanking.add(nextPlayer);
 		score += merit;
 	}
 	
 	/**
-	 * Disqualifies the current player in line to dig.
+	 * Updates the merit of a certain player, which was in line to dig when the merit was earned. The score of the team only changes,
+	 * and the player is only repositioned in the player ranking, if the player still has a license, as the merit of a disqualified
+	 * player was already taken out of the score.
+	 * @param player Index of the player in the team.
+	 * @param merit Merit to add.
+	 * @pre player >= 0 && player < number of players added
+	 */
+	public void updatePlayerMerit(int player, int merit) {
+		boolean isRanked = playerRanking.remove(player);
+		players.updateMerit(storeIndex(player), merit);
+		if (isRanked) {
+			playerRanking.add(player);
+			score += merit;
+		}
+	}
+
+	/**
+	 * @return index in the team of the current player in line to dig.
+	 */
+	public int getCurrentPlayer() {
+		return nextPlayer;
+	}
+	
+	/**
+	 * Disqualifies the current player in line to dig, updating the number of licensed and disqualified players.
 	 */
 	public void disqualifyPlayer() {
-		nextInLine.disqualifyPlayer();
+		if (currentPlayerHasLicense()) {
+			licensedPlayers--;
+			disqualifiedPlayers++;
+			unlinkLicensed(nextPlayer);
+			playerRanking.remove(nextPlayer);
+		}
+		players.disqualifyPlayer(storeIndex(nextPlayer));
 	}
 	
 	/**
 	 * @return whether the current player in line to dig has a license or not.
 	 */
 	public boolean currentPlayerHasLicense() {
-		return nextInLine.HasLicense();
+		return players.hasLicense(storeIndex(nextPlayer));
 	}
 	
 	/**
 	 * @return number of disqualified archaeologists.
 	 */
 	public int getDisqualifiedArchaeologists() {
-		int number = ZERO;
-		for(int i = ZERO; i < teamSize; i++) {
-			if(!playerList[i].HasLicense())
-				number++;
-		}
-		return number;
+		return disqualifiedPlayers;
 	}
 	
 	/**
-	 * Advances to the next player in line to dig.
+	 * Advances to the next licensed player in line to dig, following the circular list of licensed players.
 	 */
 	public void advancePlayer() {
-		nextPlayer++;
-		int number = ZERO;
-		if(nextPlayer >= teamSize) {
-			nextPlayer = ZERO;
-		}
-		Player player = playerList[nextPlayer];
-		while(!player.HasLicense() && number < teamSize) {
-			nextPlayer++;
-			if(nextPlayer >= teamSize) {
-				nextPlayer = ZERO;
-			}
-			player = playerList[nextPlayer];
-			number++;
-		}
-		nextInLine = player;
+		nextPlayer = nextLicensed[nextPlayer];
 	}
 	
 	/**
 	 * @return number of licensed archaeologists.
 	 */
 	public int getLicensedArchaeologists() {
-		int number = ZERO;
-		for(int i = ZERO; i < teamSize; i++) {
-			if(playerList[i].HasLicense())
-				number++;
-		}
-		return number;
+		return licensedPlayers;
 	}
 
 	/**
@@ -198,35 +355,22 @@ public class Team {
 	}
 	
 	/**
-	 * Auxiliary method that sorts players in a player list.
-	 * @param players player list.
-	 * @param numberOfPlayers number of licensed players.
-	 * @pre players != null && numberOfPlayers != null
+	 * @return the star player of the team, which is the best licensed player.
+	 * @pre getLicensedArchaeologists() > 0
 	 */
-	private void sortPlayers(Player[] players, int numberOfPlayers) {
-		for (int i = ONE; i < numberOfPlayers; i++) {
-			for(int j = numberOfPlayers-ONE; j>=i ;j--) {
-				if(players[j-ONE].compareTo(players[j]) < ZERO) {
-					Player aux = players[j-ONE];
-					players[j-ONE] = players[j];
-					players[j] = aux;
-				}
-			}
-		}
+	public Player getStarPlayer() {
+		return new Player(players, storeIndex(playerRanking.first()));
 	}
 	
 	/**
-	 * Creates an ordered player iterator.
+	 * Creates an ordered player iterator by walking the player ranking.
 	 * @return ordered player iterator.
 	 */
 	public PlayerIterator getOrderedPlayerIterator() {
-		Player[] aux = new Player[teamSize];
+		Player[] aux = new Player[licensedPlayers];
 		int number = ZERO;
-		for(int i = ZERO; i < teamSize; i++) {
-			if(playerList[i].HasLicense())
-				aux[number++] = playerList[i];
-		}
-		sortPlayers(aux, number);
+		for (int index : playerRanking)
+			aux[number++] = new Player(players, storeIndex(index));
 		return new PlayerIterator(aux, number);
 	}
 }
@@ -0,0 +1,236 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.InputMismatchException;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Catalog of the teams that can take part in a contest, kept in a teams file. Each entry of the file has the number of players of
+ * the team, the name of the team and the name of each player, one per line. Teams are numbered from one, in the order they appear
+ * in the file.
+ * The catalog only keeps the position of each entry in the file, and reads an entry when its team is created. The positions are
+ * saved in an index file next to the teams file, which is reused while the size and the modification time of the teams file do
+ * not change, so the teams file is only scanned when it is new or was changed.
+ * The index file is only a cache: an index file that is corrupt or does not match its teams file is ignored and the teams file is
+ * scanned instead, and an index file that cannot be written is left out, so only a teams file that is missing or cannot be read
+ * keeps the catalog from being created.
+ */
+
+public class TeamCatalog implements Closeable {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INDEX_MAGIC = 0x54494458;
+	private static final String INDEX_EXTENSION = ".idx";
+
+	// instance variables
+
+	private File file;
+	private File index;
+	private FileChannel teams;
+	private long[] offsets;
+	private int numberOfTeams;
+	private boolean isIndexScanned;
+
+	// constructors
+
+	/**
+	 * Creates a catalog with every team in a teams file, using its index file if it is up to date and building it otherwise.
+	 * @param fileName Name of the teams file.
+	 * @throws FileNotFoundException if the teams file does not exist.
+	 * @throws IOException if the teams file cannot be read.
+	 * @pre fileName != null
+	 */
+	public TeamCatalog(String fileName) throws IOException {
+		file = new File(fileName);
+		index = new File(fileName + INDEX_EXTENSION);
+		if (!file.isFile())
+			throw new FileNotFoundException(fileName);
+		teams = new RandomAccessFile(file, "r").getChannel();
+		try {
+			if (!readIndex(file.length(), file.lastModified()))
+				scanTeams();
+		} catch (IOException | RuntimeException e) {
+			teams.close();
+			throw e;
+		}
+	}
+
+	// methods
+
+	/**
+	 * Auxiliary method that reads the positions of the entries from the index file, if it matches the teams file. An index file
+	 * whose positions are not increasing positions inside the teams file, or with anything after them, is corrupt and not read.
+	 * @param size Size of the teams file.
+	 * @param modified Modification time of the teams file.
+	 * @return whether the index file was read or not.
+	 */
+	private boolean readIndex(long size, long modified) {
+		if (!index.isFile())
+			return false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+			if (in.readInt() != INDEX_MAGIC || in.readLong() != size || in.readLong() != modified)
+				return false;
+			int teamsInIndex = in.readInt();
+			if (teamsInIndex < ZERO || teamsInIndex > size)
+				return false;
+			long[] positions = new long[Math.max(teamsInIndex, ONE)];
+			for (int i = ZERO; i < teamsInIndex; i++) {
+				positions[i] = in.readLong();
+				if (positions[i] < ZERO || positions[i] >= size || (i > ZERO && positions[i] <= positions[i - ONE]))
+					return false;
+			}
+			if (in.read() != -1)
+				return false;
+			offsets = positions;
+			numberOfTeams = teamsInIndex;
+			isIndexScanned = false;
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Auxiliary method that scans the teams file once, keeping the position of each entry, and saves the positions in the index file.
+	 * @throws IOException if the teams file cannot be read.
+	 * @throws InputMismatchException if an entry of the teams file does not start with its number of players.
+	 */
+	private void scanTeams() throws IOException {
+		long size = file.length();
+		long modified = file.lastModified();
+		offsets = new long[INITIAL_CAPACITY];
+		numberOfTeams = ZERO;
+		try (InputReader in = new InputReader(new FileInputStream(file))) {
+			while (in.hasNext()) {
+				long offset = in.getOffset();
+				int numberOfPlayers = in.nextInt();
+				in.skipLine();
+				in.skipLine();
+				for (int i = ZERO; i < numberOfPlayers; i++)
+					in.skipLine();
+				addOffset(offset);
+			}
+		}
+		isIndexScanned = true;
+		writeIndex(size, modified);
+	}
+
+	/**
+	 * Auxiliary method that saves the positions of the entries in the index file. If the index file cannot be written, the
+	 * positions are only kept in memory.
+	 * @param size Size of the teams file.
+	 * @param modified Modification time of the teams file.
+	 */
+	private void writeIndex(long size, long modified) {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index)))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeLong(size);
+			out.writeLong(modified);
+			out.writeInt(numberOfTeams);
+			for (int i = ZERO; i < numberOfTeams; i++)
+				out.writeLong(offsets[i]);
+		} catch (IOException e) {
+			if (index.isFile())
+				index.delete();
+		}
+	}
+
+	/**
+	 * Auxiliary method that adds the position of an entry, growing the positions when needed.
+	 * @param offset Position of the entry in the teams file.
+	 */
+	private void addOffset(long offset) {
+		if (numberOfTeams == offsets.length) {
+			long[] aux = new long[offsets.length * 2];
+			System.arraycopy(offsets, ZERO, aux, ZERO, numberOfTeams);
+			offsets = aux;
+		}
+		offsets[numberOfTeams++] = offset;
+	}
+
+	/**
+	 * @return number of teams in the catalog.
+	 */
+	public int getNumberOfTeams() {
+		return numberOfTeams;
+	}
+
+	/**
+	 * @param number Number of the team.
+	 * @return whether there is a team with that number in the catalog or not.
+	 */
+	public boolean hasTeam(int number) {
+		return number >= ONE && number <= numberOfTeams;
+	}
+
+	/**
+	 * Creates a team, with all its players, reading its entry straight from its position in the teams file. If the entry is not at
+	 * the position read from the index file, the index file was stale, so the teams file is scanned again and the entry is read from
+	 * its new position, as long as the team is still in the teams file.
+	 * @param number Number of the team.
+	 * @param players Player store where the players of the team are kept.
+	 * @return the team created, or null if the teams file no longer has that team.
+	 * @throws IOException if the teams file cannot be read.
+	 * @pre hasTeam(number) && players != null
+	 */
+	public Team createTeam(int number, PlayerStore players) throws IOException {
+		if (!isIndexScanned) {
+			try {
+				return readTeam(number, players);
+			} catch (InputMismatchException e) {
+				scanTeams();
+				if (!hasTeam(number))
+					return null;
+			}
+		}
+		return readTeam(number, players);
+	}
+
+	/**
+	 * Auxiliary method that reads the entry of a team from its position in the teams file.
+	 * @param number Number of the team.
+	 * @param players Player store where the players of the team are kept.
+	 * @return the team read.
+	 * @throws IOException if the teams file cannot be read.
+	 * @throws InputMismatchException if there is no entry at the position of the team.
+	 */
+	private Team readTeam(int number, PlayerStore players) throws IOException {
+		long offset = offsets[number - ONE];
+		if (offset > ZERO) {
+			ByteBuffer previous = ByteBuffer.allocate(ONE);
+			if (teams.read(previous, offset - ONE) != ONE || previous.get(ZERO) != '\n')
+				throw new InputMismatchException();
+		}
+		InputReader in = new InputReader(Channels.newInputStream(teams.position(offset)));
+		int numberOfPlayers = in.nextInt();
+		in.skipLine();
+		Team team = new Team(in.nextLine(), numberOfPlayers, players);
+		for (int i = ZERO; i < numberOfPlayers; i++)
+			team.addPlayer(in.nextLine());
+		return team;
+	}
+
+	/**
+	 * Closes the teams file.
+	 * @throws IOException if the teams file cannot be closed.
+	 */
+	public void close() throws IOException {
+		teams.close();
+	}
+}
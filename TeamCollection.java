@@ -1,7 +1,18 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * @author Tiago Costa Sousa
  * @author Rodrigo Lemos Fernandes 
  * Handles the information concerning all the teams.
+ * Each team keeps its slot, its number, while it is in the collection, and removed slots are reused by the next teams added. The
+ * collection can be made concurrent, so that many teams can dig at once from different threads.
  */
 
 public class TeamCollection {
@@ -9,47 +20,282 @@ public class TeamCollection {
 	// constants
 	
 	private static final int ZERO = 0;
-	private static final int ONE = 1;
 	private static final int COLLECTION_SIZE = 10;
+	private static final int NOT_FOUND = -1;
+	private static final int LOCK_STRIPES = 64;
+	private static final int VERSION_PADDING = 16;
 	
 	// instance variables
 
-	private Team[] participatingTeams;
+	private volatile Team[] participatingTeams;
+	private volatile int[] generations;
+	private int usedSlots;
+	private int[] freeSlots;
+	private int numberOfFreeSlots;
+	private Map<String, TeamHandle> teamIndex;
+	private int[] previousSameName;
+	private int[] nextSameName;
+	private long additions;
+	private NavigableSet<Team> ranking;
+	private NameTable teamNames;
+	private volatile long version;
+	private volatile RankingSnapshot snapshot;
+	private Team[] orderedTeams;
+	private long orderedVersion;
 	private int numberOfTeams;
+	private ReentrantLock[] teamLocks;
+	private ReentrantLock collectionLock;
+	private AtomicLongArray stripeVersions;
 
 	// constructors
 	
 	public TeamCollection() {
 		participatingTeams = new Team[COLLECTION_SIZE];
+		generations = new int[COLLECTION_SIZE];
+		usedSlots = ZERO;
+		freeSlots = new int[COLLECTION_SIZE];
+		numberOfFreeSlots = ZERO;
+		teamIndex = new HashMap<String, TeamHandle>();
+		previousSameName = new int[COLLECTION_SIZE];
+		nextSameName = new int[COLLECTION_SIZE];
+		additions = ZERO;
+		teamNames = new NameTable();
+		ranking = new TreeSet<Team>((first, second) -> compareRanking(first, second));
 		numberOfTeams = ZERO;
+		version = ZERO;
+		orderedTeams = null;
+		orderedVersion = NOT_FOUND;
+		snapshot = null;
 	}
 	
 	// methods
 
 	/**
-	 * Adds a team to the team collection.
+	 * Makes the collection safe to use from many threads at once, creating the striped locks of the teams, with their versions, and the
+	 * lock of the collection. The state of each team is then guarded by the striped lock chosen by its number, and adding and removing
+	 * teams by the lock of the collection. The name index becomes a concurrent map, so names are resolved without any lock, and the
+	 * ranking is no longer kept ordered as teams dig, which would make every team wait for the others. The teams are only ordered when
+	 * the ranking is read after a change, by copying the state of each team under its lock and sorting the copies.
+	 * @pre no other thread is using the collection
+	 */
+	public void makeConcurrent() {
+		teamLocks = new ReentrantLock[LOCK_STRIPES];
+		for (int i = ZERO; i < LOCK_STRIPES; i++)
+			teamLocks[i] = new ReentrantLock();
+		stripeVersions = new AtomicLongArray(LOCK_STRIPES * VERSION_PADDING);
+		teamIndex = new ConcurrentHashMap<String, TeamHandle>(teamIndex);
+		ranking = null;
+		collectionLock = new ReentrantLock();
+	}
+
+	/**
+	 * Auxiliary method that checks if the collection is concurrent.
+	 * @return whether the collection is concurrent or not.
+	 */
+	private boolean isConcurrent() {
+		return teamLocks != null;
+	}
+
+	/**
+	 * Auxiliary method that records a change to a team, either in the version of its stripe, if the collection is concurrent, or by
+	 * increasing the version of the collection otherwise.
+	 * @param number Number of the team that changed.
+	 * @pre the lock of the team is held, if the collection is concurrent
+	 */
+	private void teamChanged(int number) {
+		if (isConcurrent())
+			stripeVersions.incrementAndGet((number & (LOCK_STRIPES - 1)) * VERSION_PADDING);
+		else
+			version++;
+	}
+
+	/**
+	 * Locks the striped lock of a team, if the collection is concurrent. The team does not need to be in the collection. A thread
+	 * holding the lock of a team may take the lock of the collection, but never the other way around.
+	 * @param number Number of the team.
+	 * @pre number >= 0
+	 */
+	public void lockTeam(int number) {
+		if (teamLocks != null)
+			teamLocks[number & (LOCK_STRIPES - 1)].lock();
+	}
+
+	/**
+	 * Unlocks the striped lock of a team, if the collection is concurrent.
+	 * @param number Number of the team.
+	 * @pre number >= 0
+	 */
+	public void unlockTeam(int number) {
+		if (teamLocks != null)
+			teamLocks[number & (LOCK_STRIPES - 1)].unlock();
+	}
+
+	/**
+	 * Auxiliary method that locks the lock of the collection, if the collection is concurrent.
+	 */
+	private void lockCollection() {
+		if (collectionLock != null)
+			collectionLock.lock();
+	}
+
+	/**
+	 * Auxiliary method that unlocks the lock of the collection, if the collection is concurrent.
+	 */
+	private void unlockCollection() {
+		if (collectionLock != null)
+			collectionLock.unlock();
+	}
+
+	/**
+	 * Auxiliary method that compares two teams to order the ranking. Better teams come first and, between teams that compare the
+	 * same, the one that was added first comes first.
+	 * @param first A team.
+	 * @param second Another team.
+	 * @return result of comparison.
+	 */
+	private int compareRanking(Team first, Team second) {
+		int comparison = second.compareTo(first);
+		if (comparison != ZERO)
+			return comparison;
+		return Long.compare(first.getOrder(), second.getOrder());
+	}
+
+	/**
+	 * Adds a team to the team collection and to the ranking, in a free slot if there is one. The name of the team is interned in the
+	 * name table of the teams, so ties in the ranking are broken by comparing collation ranks. A team with the name of a team already
+	 * in the collection takes its place in the name index.
 	 * @param team Team to add.
+	 * @return handle of the team.
 	 * @pre team != null
 	 */
-	public void addTeam(Team team) {
-		participatingTeams[numberOfTeams++] = team;
+	public TeamHandle addTeam(Team team) {
+		lockCollection();
+		try {
+			int number;
+			if (numberOfFreeSlots > ZERO)
+				number = freeSlots[--numberOfFreeSlots];
+			else {
+				if (usedSlots == participatingTeams.length)
+					grow();
+				number = usedSlots++;
+			}
+			team.setCollation(teamNames);
+			team.setOrder(additions++);
+			if (!isConcurrent())
+				ranking.add(team);
+			participatingTeams[number] = team;
+			TeamHandle handle = new TeamHandle(number, generations[number]);
+			TeamHandle previous = teamIndex.put(team.getName(), handle);
+			previousSameName[number] = previous == null ? NOT_FOUND : previous.getSlot();
+			nextSameName[number] = NOT_FOUND;
+			if (previous != null)
+				nextSameName[previous.getSlot()] = number;
+			numberOfTeams++;
+			version++;
+			return handle;
+		} finally {
+			unlockCollection();
+		}
+	}
+	
+	/**
+	 * Auxiliary method that doubles the number of slots.
+	 */
+	private void grow() {
+		Team[] teams = new Team[participatingTeams.length * 2];
+		int[] slotGenerations = new int[participatingTeams.length * 2];
+		int[] free = new int[participatingTeams.length * 2];
+		int[] previous = new int[participatingTeams.length * 2];
+		int[] next = new int[participatingTeams.length * 2];
+		System.arraycopy(participatingTeams, ZERO, teams, ZERO, usedSlots);
+		System.arraycopy(generations, ZERO, slotGenerations, ZERO, usedSlots);
+		System.arraycopy(freeSlots, ZERO, free, ZERO, numberOfFreeSlots);
+		System.arraycopy(previousSameName, ZERO, previous, ZERO, usedSlots);
+		System.arraycopy(nextSameName, ZERO, next, ZERO, usedSlots);
+		generations = slotGenerations;
+		participatingTeams = teams;
+		freeSlots = free;
+		previousSameName = previous;
+		nextSameName = next;
 	}
 	
 	/**
-	 * Removes a team from the team collection.
+	 * Removes a team from the team collection. The slot of the team is left empty, its generation is increased and it is added to
+	 * the free slots, so every other team keeps its number. If the team is the one in the name index, the name is handed over to the
+	 * team with the same name added before it, if there is one.
 	 * @param number Number of the team to remove.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number) && the lock of the team is held, if the collection is concurrent
 	 */
 	public void removeFrom(int number) {
-		for (int i = number; i < numberOfTeams - 1; i++)
-			participatingTeams[i] = participatingTeams[i + ONE];
-		numberOfTeams--;
+		lockCollection();
+		try {
+			unlinkName(number);
+			if (!isConcurrent())
+				ranking.remove(participatingTeams[number]);
+			participatingTeams[number] = null;
+			generations[number]++;
+			freeSlots[numberOfFreeSlots++] = number;
+			numberOfTeams--;
+			version++;
+		} finally {
+			unlockCollection();
+		}
+	}
+	
+	/**
+	 * Auxiliary method that unlinks a team from the teams with the same name, updating the name index if it pointed at the team.
+	 * @param number Number of the team to unlink.
+	 */
+	private void unlinkName(int number) {
+		int previous = previousSameName[number];
+		int next = nextSameName[number];
+		if (previous != NOT_FOUND)
+			nextSameName[previous] = next;
+		if (next != NOT_FOUND)
+			previousSameName[next] = previous;
+		else if (previous != NOT_FOUND)
+			teamIndex.put(participatingTeams[number].getName(), new TeamHandle(previous, generations[previous]));
+		else
+			teamIndex.remove(participatingTeams[number].getName());
+	}
+
+	/**
+	 * @param number Number of the team to check.
+	 * @return whether there is a team with that number in the collection or not.
+	 */
+	public boolean hasTeam(int number) {
+		return number >= ZERO && number < usedSlots && participatingTeams[number] != null;
+	}
+	
+	/**
+	 * Checks if a handle still refers to a team in the collection, without taking the lock of the collection, since a team is only
+	 * removed while holding the lock of its team.
+	 * @param handle Handle of the team.
+	 * @return whether the team of the handle is still in the collection or not.
+	 * @pre handle != null && the lock of the team of the handle is held, if the collection is concurrent
+	 */
+	public boolean isValid(TeamHandle handle) {
+		int number = handle.getSlot();
+		Team[] teams = participatingTeams;
+		int[] slotGenerations = generations;
+		return number >= ZERO && number < teams.length && number < slotGenerations.length && teams[number] != null
+				&& slotGenerations[number] == handle.getGeneration();
+	}
+	
+	/**
+	 * Gets the handle of a team through the name of the team, from the name index, without taking the lock of the collection.
+	 * @param teamName Name of the team.
+	 * @return handle of the team, or null if there is no team with that name.
+	 * @pre teamName != null
+	 */
+	public TeamHandle getHandle(String teamName) {
+		return teamIndex.get(teamName);
 	}
 	
 	/**
 	 * Checks if a team should be in play or not, and updates its status accordingly.
 	 * @param number Number of the team to check.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public void setInPlayStatus(int number) {
 		participatingTeams[number].setInPlayStatus();
@@ -58,7 +304,7 @@ public class TeamCollection {
 	/**
 	 * @param number Number of the team to check.
 	 * @return whether a team is in play or not.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public boolean isInPlay(int number) {
 		return participatingTeams[number].isInPlay();
@@ -68,7 +314,7 @@ public class TeamCollection {
 	 * Checks if the current player to dig in a certain team has a license or not.
 	 * @param number Number of the team to check.
 	 * @return whether the player has a license or not.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public boolean currentPlayerHasLicense(int number) {
 		return participatingTeams[number].currentPlayerHasLicense();
@@ -77,7 +323,7 @@ public class TeamCollection {
 	/**
 	 * @param number Number of the team to get name.
 	 * @return the name of a team.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public String getTeamName(int number) {
 		return participatingTeams[number].getName();
@@ -90,18 +336,13 @@ public class TeamCollection {
 	 * @pre name != null
 	 */
 	public boolean checkTeam(String name) {
-		boolean exists = false;
-		for (int i = ZERO; i < numberOfTeams; i++) {
-			if (name.equals(participatingTeams[i].getName()))
-				exists = true;
-		}
-		return exists;
+		return teamIndex.containsKey(name);
 	}
 	
 	/**
 	 * Advances the order of the next player to dig in a certain team.
 	 * @param number Number of the team to advance the player.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public void advancePlayer(int number) {
 		participatingTeams[number].advancePlayer();
@@ -112,7 +353,7 @@ public class TeamCollection {
 	 * @param jumpR Amount of space the player will move row-wise.
 	 * @param jumpC Amount of space the player will move column-wise.
 	 * @param number Number of the team to move the player.
-	 * @pre number != null && number >= 0 && number < numberOfTeams &&
+	 * @pre hasTeam(number) &&
 	 * jumpR != null && jumpC != null && if (jumpC == 0 || jumpR == 0) jumpC != jumpR
 	 */
 	public void movePlayer(int jumpR, int jumpC, int number) {
@@ -120,20 +361,57 @@ public class TeamCollection {
 	}
 	
 	/**
-	 * Updates the merit of current player to dig in a certain team.
+	 * Updates the merit of current player to dig in a certain team, repositioning the team in the ranking, if it is kept ordered.
 	 * @param number Number of the team to update the merit.
 	 * @param merit Amount of merit to change.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number) && the lock of the team is held, if the collection is concurrent
 	 */
 	public void updateTreasureMerit(int number, int merit) {
-		participatingTeams[number].updateMerit(merit);
+		if (merit == ZERO)
+			return;
+		Team team = participatingTeams[number];
+		if (!isConcurrent())
+			ranking.remove(team);
+		team.updateMerit(merit);
+		if (!isConcurrent())
+			ranking.add(team);
+		teamChanged(number);
+	}
+	
+	/**
+	 * Updates the merit of a certain player of a team, earned while the player was in line to dig, repositioning the team in the
+	 * ranking, if it is kept ordered.
+	 * @param number Number of the team to update the merit.
+	 * @param player Index of the player in the team.
+	 * @param merit Amount of merit to change.
+	 * @pre hasTeam(number) && the lock of the team is held, if the collection is concurrent
+	 */
+	public void updatePlayerMerit(int number, int player, int merit) {
+		if (merit == ZERO)
+			return;
+		Team team = participatingTeams[number];
+		if (!isConcurrent())
+			ranking.remove(team);
+		team.updatePlayerMerit(player, merit);
+		if (!isConcurrent())
+			ranking.add(team);
+		teamChanged(number);
+	}
+
+	/**
+	 * @param number Number of the team.
+	 * @return index in the team of the current player to dig in a certain team.
+	 * @pre hasTeam(number)
+	 */
+	public int getCurrentPlayer(int number) {
+		return participatingTeams[number].getCurrentPlayer();
 	}
 	
 	/**
 	 * Gets the row location of the current player to dig in a certain team.
 	 * @param number Number of the team to get location.
 	 * @return location of the current player to dig, row-wise.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public int getLocationR(int number) {
 		return participatingTeams[number].getLocationR();
@@ -143,41 +421,55 @@ public class TeamCollection {
 	 * Gets the column location of the current player to dig in a certain team.
 	 * @param number Number of the team to get location.
 	 * @return location of the current player to dig, column-wise.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public int getLocationC(int number) {
 		return participatingTeams[number].getLocationC();
 	}
 	
 	/**
-	 * Disqualifies the current player from a certain team and removes his merit from the team score.
+	 * Disqualifies the current player from a certain team and removes his merit from the team score, repositioning the team
+	 * in the ranking, if it is kept ordered.
 	 * @param number Number of the team to disqualify the player.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number) && the lock of the team is held, if the collection is concurrent
 	 */
 	public void disqualifyPlayer(int number) {
-		participatingTeams[number].disqualifyPlayer();
-		participatingTeams[number].removeDisqualifiedScore();
+		Team team = participatingTeams[number];
+		if (!isConcurrent())
+			ranking.remove(team);
+		team.disqualifyPlayer();
+		team.removeDisqualifiedScore();
+		if (!isConcurrent())
+			ranking.add(team);
+		teamChanged(number);
 	}
 	
 	/**
-	 * Gets the team number through the name of the team.
+	 * Gets the team number through the name of the team, using the name index.
 	 * @param teamName Name of the team.
-	 * @return team number.
+	 * @return team number, or -1 if there is no team with that name.
 	 * @pre teamName != null
 	 */
 	public int getTeamByName(String teamName) {
-		int number = -1;
-		for (int i = ZERO; i < numberOfTeams; i++) {
-			if (teamName.equals(participatingTeams[i].getName()))
-				number = i;
-		}
-		return number;
+		TeamHandle handle = teamIndex.get(teamName);
+		if (handle == null)
+			return NOT_FOUND;
+		return handle.getSlot();
+	}
+	
+	/**
+	 * @param number Number of the team to get the star player from.
+	 * @return star player of a certain team.
+	 * @pre hasTeam(number)
+	 */
+	public Player getStarPlayer(int number) {
+		return participatingTeams[number].getStarPlayer();
 	}
 	
 	/**
 	 * @param number Number of the team to get an iterator from.
 	 * @return ordered player iterator from a certain team.
-	 * @pre number != null && number >= 0 && number < numberOfTeams
+	 * @pre hasTeam(number)
 	 */
 	public PlayerIterator getOrderedPlayerIterator(int number) {
 		return participatingTeams[number].getOrderedPlayerIterator();
@@ -187,37 +479,198 @@ public class TeamCollection {
 	 * @return number of teams in the team collection.
 	 */
 	public int getNumberOfTeams() {
-		return numberOfTeams;
+		lockCollection();
+		try {
+			return numberOfTeams;
+		} finally {
+			unlockCollection();
+		}
+	}
+	
+	/**
+	 * Gets the version of the collection. If the collection is concurrent, each striped lock has a version of its own, increased
+	 * whenever a team of that stripe changes, and the version of the collection is the sum of them all.
+	 * @return the version of the collection, which increases whenever a team changes in a way that can change the ranking.
+	 */
+	public long getVersion() {
+		long current = version;
+		if (isConcurrent())
+			for (int i = ZERO; i < LOCK_STRIPES; i++)
+				current += stripeVersions.get(i * VERSION_PADDING);
+		return current;
 	}
 	
 	/**
-	 * Auxiliary method that sorts teams by their ranking.
-	 * @param teamCollection Team collection to sort.
-	 * @param numberOfTeams Number of teams to sort.
-	 * @pre teamCollection != null && numberOfTeams != null
+	 * Returns an iterator with the ordered team collection. The ranking, which is kept ordered as teams change, is only walked when
+	 * the collection changed since the last time it was walked. If the collection is concurrent, the teams are ordered by taking a
+	 * snapshot of the ranking instead.
+	 * @return an ordered team iterator.
 	 */
-	private void sortTeams(Team[] teamCollection, int numberOfTeams) {
-		for (int i = ONE; i < numberOfTeams; i++) {
-			for(int j = numberOfTeams-ONE; j>=i ;j--) {
-				if(teamCollection[j-ONE].compareTo(teamCollection[j]) < ZERO) {
-					Team aux = teamCollection[j-ONE];
-					teamCollection[j-ONE] = teamCollection[j];
-					teamCollection[j] = aux;
+	public TeamIterator getOrderedTeamIterator() {
+		if (isConcurrent()) {
+			Team[] teams = getConcurrentOrder();
+			return new TeamIterator(teams, teams.length);
+		}
+		if (orderedVersion != version) {
+			orderedTeams = ranking.toArray(new Team[numberOfTeams]);
+			orderedVersion = version;
+		}
+		return new TeamIterator(orderedTeams, numberOfTeams);
+	}
+	
+	/**
+	 * Gets a snapshot of the ranking. The published snapshot is returned right away if the collection did not change since it was
+	 * taken, and otherwise a new one is taken and published. If the collection is concurrent, the snapshot is taken by ordering copies
+	 * of the teams, without holding the lock of the collection while the teams are copied.
+	 * @return a snapshot of the ranking at the current version.
+	 */
+	public RankingSnapshot getRankingSnapshot() {
+		long current = getVersion();
+		RankingSnapshot published = snapshot;
+		if (published != null && published.getVersion() == current)
+			return published;
+		if (isConcurrent())
+			return takeSnapshot(current);
+		snapshot = new RankingSnapshot(current, getOrderedTeamIterator(), numberOfTeams);
+		return snapshot;
+	}
+
+	/**
+	 * Auxiliary method that gets the teams in the order of the latest snapshot of the ranking, taking a new one if the collection
+	 * changed since it was taken.
+	 * @return the teams in ranking order.
+	 * @pre isConcurrent()
+	 */
+	private Team[] getConcurrentOrder() {
+		getRankingSnapshot();
+		lockCollection();
+		try {
+			return orderedTeams;
+		} finally {
+			unlockCollection();
+		}
+	}
+
+	/**
+	 * Auxiliary method that takes a snapshot of the ranking of a concurrent collection. The teams are listed while holding the lock of
+	 * the collection, which is then released, and the state of each team is copied while holding the lock of that team alone, so only
+	 * the teams of one stripe wait at a time. The copies are then ordered as the ranking would be. The snapshot is published with the
+	 * teams in its order, unless a newer one was published meanwhile.
+	 * @param version Version of the collection read before any team was copied.
+	 * @return the snapshot taken.
+	 * @pre isConcurrent()
+	 */
+	private RankingSnapshot takeSnapshot(long version) {
+		Team[] teams;
+		int[] numbers;
+		int size = ZERO;
+		lockCollection();
+		try {
+			teams = new Team[numberOfTeams];
+			numbers = new int[numberOfTeams];
+			for (int i = ZERO; i < usedSlots; i++) {
+				if (participatingTeams[i] != null) {
+					teams[size] = participatingTeams[i];
+					numbers[size++] = i;
 				}
 			}
+		} finally {
+			unlockCollection();
 		}
+		int[] scores = new int[size];
+		int[] disqualified = new int[size];
+		int[] licensed = new int[size];
+		int kept = ZERO;
+		for (int i = ZERO; i < size; i++) {
+			lockTeam(numbers[i]);
+			try {
+				if (participatingTeams[numbers[i]] == teams[i]) {
+					teams[kept] = teams[i];
+					scores[kept] = teams[i].getScore();
+					disqualified[kept] = teams[i].getDisqualifiedArchaeologists();
+					licensed[kept] = teams[i].getLicensedArchaeologists();
+					kept++;
+				}
+			} finally {
+				unlockTeam(numbers[i]);
+			}
+		}
+		Integer[] positions = new Integer[kept];
+		for (int i = ZERO; i < kept; i++)
+			positions[i] = i;
+		Arrays.sort(positions, (first, second) -> compareCopies(teams, scores, disqualified, licensed, first, second));
+		Team[] ordered = new Team[kept];
+		String[] names = new String[kept];
+		int[] orderedScores = new int[kept];
+		int[] orderedDisqualified = new int[kept];
+		int[] orderedLicensed = new int[kept];
+		for (int i = ZERO; i < kept; i++) {
+			int position = positions[i];
+			ordered[i] = teams[position];
+			names[i] = teams[position].getName();
+			orderedScores[i] = scores[position];
+			orderedDisqualified[i] = disqualified[position];
+			orderedLicensed[i] = licensed[position];
+		}
+		RankingSnapshot taken = new RankingSnapshot(version, names, orderedScores, orderedDisqualified, orderedLicensed);
+		lockCollection();
+		try {
+			if (snapshot == null || snapshot.getVersion() < version) {
+				snapshot = taken;
+				orderedTeams = ordered;
+				orderedVersion = version;
+			}
+		} finally {
+			unlockCollection();
+		}
+		return taken;
 	}
-		
+
 	/**
-	 * Temporarily orders the team collection and returns an iterator with that ordered team collection.
-	 * @return an ordered team iterator.
+	 * Auxiliary method that compares the copies of two teams as compareRanking compares the teams themselves. The names and the order
+	 * of the teams never change, so they are read from the teams.
+	 * @param teams Teams copied.
+	 * @param scores Scores of the teams.
+	 * @param disqualified Disqualified archaeologists of the teams.
+	 * @param licensed Licensed archaeologists of the teams.
+	 * @param first Position of a team.
+	 * @param second Position of another team.
+	 * @return result of comparison.
 	 */
-	public TeamIterator getOrderedTeamIterator() {
-		Team[] aux = new Team[numberOfTeams];
-		for(int i = ZERO; i < numberOfTeams; i++) {
-			aux[i] = participatingTeams[i];
+	private int compareCopies(Team[] teams, int[] scores, int[] disqualified, int[] licensed, int first, int second) {
+		if (scores[second] != scores[first])
+			return scores[second] - scores[first];
+		if (disqualified[first] != disqualified[second])
+			return disqualified[first] - disqualified[second];
+		if (licensed[first] != licensed[second])
+			return licensed[first] - licensed[second];
+		int comparison = teams[second].compareNames(teams[first]);
+		if (comparison != ZERO)
+			return comparison;
+		return Long.compare(teams[first].getOrder(), teams[second].getOrder());
+	}
+	
+	/**
+	 * Returns an iterator with the best teams, taken from the cached ordered teams if they are up to date, or otherwise by walking
+	 * only the beginning of the ranking. If the collection is concurrent, they are taken from the order of a snapshot instead.
+	 * @param k Number of teams to get.
+	 * @return an ordered team iterator with, at most, the k best teams.
+	 * @pre k >= 0
+	 */
+	public TeamIterator getTopTeams(int k) {
+		if (isConcurrent()) {
+			Team[] teams = getConcurrentOrder();
+			return new TeamIterator(teams, Math.min(k, teams.length));
+		}
+		if (orderedVersion == version)
+			return new TeamIterator(orderedTeams, Math.min(k, numberOfTeams));
+		Team[] aux = new Team[Math.min(k, numberOfTeams)];
+		int number = ZERO;
+		for (Team team : ranking) {
+			if (number == aux.length)
+				break;
+			aux[number++] = team;
 		}
-		sortTeams(aux, numberOfTeams);
-		return new TeamIterator(aux, numberOfTeams);
+		return new TeamIterator(aux, number);
 	}
 }
@@ -0,0 +1,38 @@
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Handle of a team in the team collection. Holds the slot of the team, which never changes while the team is in the collection, and
+ * the generation of that slot when the handle was created, so a handle to a removed team is never mistaken for a team that later
+ * takes the same slot.
+ */
+
+public class TeamHandle {
+
+	// instance variables
+
+	private int slot;
+	private int generation;
+
+	// constructors
+
+	public TeamHandle(int slot, int generation) {
+		this.slot = slot;
+		this.generation = generation;
+	}
+
+	// methods
+
+	/**
+	 * @return the slot of the team.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @return the generation of the slot when the handle was created.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+}
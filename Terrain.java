@@ -1,7 +1,14 @@
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
 /**
  * @author Tiago Costa Sousa
  * @author Rodrigo Lemos Fernandes 
  * Handles the information concerning the terrain.
+ * The plots are kept in a plot storage, where the plot in row r and column c is at index r * cols + c, and the terrain keeps count of
+ * its wealth and of its remaining treasures as plots are dug. The terrain can be made concurrent, so that many threads can dig it at
+ * once.
  */
 
 public class Terrain {
@@ -9,25 +16,91 @@ public class Terrain {
 	// constants
 	
 	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int SPARSE_DENSITY_LIMIT = 8;
+	private static final int COUNTERS_SHIFT = 32;
+	private static final long ONE_REMOVAL_STARTED = 1L << COUNTERS_SHIFT;
+	private static final int LANE_PADDING = 16;
+	private static final int DEFAULT_LANE = 0;
+	private static final String TOO_LARGE = "Terrain too large: ";
 		
 	// instance variables
 
-	private Plot[][] terrain;
+	private PlotStorage storage;
+	private volatile TerrainRenderer renderer;
+	private volatile TreasureMap treasures;
+	private volatile TreasureMap liveTreasures;
+	private boolean isConcurrent;
+	private boolean isSparse;
+	private boolean isMapped;
 	private int rows, cols;
-	private int usedRows, usedCols;
+	private int usedPlots;
+	private AtomicLongArray counters;
+	private AtomicLongArray removals;
+	private int numberOfLanes;
 	
 	// constructors
 
+	/**
+	 * Creates an empty terrain, whose plots are added afterwards.
+	 * @param rows Number of rows of the terrain.
+	 * @param cols Number of columns of the terrain.
+	 * @throws IllegalArgumentException if the terrain has more plots than the largest plot index.
+	 */
 	public Terrain(int rows, int cols) {
+		checkSize(rows, cols);
+		this.rows = rows;
+		this.cols = cols;
+		storage = new SparsePlotStorage(cols);
+		isSparse = true;
+		isMapped = false;
+		isConcurrent = false;
+		usedPlots = ZERO;
+		numberOfLanes = ONE;
+		counters = new AtomicLongArray(LANE_PADDING);
+		removals = new AtomicLongArray(LANE_PADDING);
+	}
+
+	/**
+	 * Creates a terrain whose plots are already in a plot storage, counting the wealth and the remaining treasures it holds.
+	 * @param rows Number of rows of the terrain.
+	 * @param cols Number of columns of the terrain.
+	 * @param storage Plot storage with every plot of the terrain.
+	 * @throws IllegalArgumentException if the terrain has more plots than the largest plot index.
+	 * @pre storage != null
+	 */
+	public Terrain(int rows, int cols, PlotStorage storage) {
+		checkSize(rows, cols);
 		this.rows = rows;
 		this.cols = cols;
-		terrain = new Plot[rows][cols];
-		usedRows = ZERO;
-		usedCols = ZERO;
+		this.storage = storage;
+		isSparse = false;
+		isMapped = true;
+		isConcurrent = false;
+		usedPlots = ZERO;
+		numberOfLanes = ONE;
+		counters = new AtomicLongArray(LANE_PADDING);
+		removals = new AtomicLongArray(LANE_PADDING);
+		for (int i = ZERO; i < rows * cols; i++) {
+			int worth = storage.getWorth(i);
+			if (worth != ZERO)
+				addTreasure(worth, ONE, DEFAULT_LANE);
+		}
 	}
 
 	// methods
 
+	/**
+	 * Auxiliary method that checks that the dimensions of a terrain are not negative and that every plot has an index.
+	 * @param rows Number of rows of the terrain.
+	 * @param cols Number of columns of the terrain.
+	 * @throws IllegalArgumentException if the terrain has more plots than the largest plot index.
+	 */
+	private static void checkSize(int rows, int cols) {
+		if (rows < ZERO || cols < ZERO || (long) rows * cols > Integer.MAX_VALUE)
+			throw new IllegalArgumentException(TOO_LARGE + rows + "x" + cols);
+	}
+
 	/**
 	 * @return the number of rows in the terrain.
 	 */
@@ -43,33 +116,186 @@ public class Terrain {
 	}
 	
 	/**
-	 * Creates a two-dimensional array with information of which plot has treasure or not.
-	 * @return boolean two-dimensional array with information of which plot has treasure.
+	 * @return whether the terrain is using a sparse storage or not.
+	 */
+	public boolean isSparse() {
+		return isSparse;
+	}
+	
+	/**
+	 * Makes the terrain safe to dig from many threads at once. A sparse storage is first switched to a dense storage, whose plots
+	 * never move and are dug with a compare-and-set.
+	 * @pre no other thread is using the terrain
+	 */
+	public void makeConcurrent() {
+		if (isSparse)
+			switchToDense();
+		storage.makeConcurrent();
+		isConcurrent = true;
+	}
+	
+	/**
+	 * Splits the counters and the removal stamp of the terrain in lanes, keeping their values in the first lane. Each lane is in a
+	 * cache line of its own, so threads digging in different lanes, such as the workers of the bands of a sharded terrain, never write
+	 * the same line. Packed values add up, so the counters and the stamp of the terrain are the sums of those of its lanes.
+	 * @param numberOfLanes Number of lanes.
+	 * @pre numberOfLanes > 0 && no other thread is using the terrain
+	 */
+	public void splitCounters(int numberOfLanes) {
+		AtomicLongArray laneCounters = new AtomicLongArray(numberOfLanes * LANE_PADDING);
+		AtomicLongArray laneRemovals = new AtomicLongArray(numberOfLanes * LANE_PADDING);
+		laneCounters.set(DEFAULT_LANE, sumLanes(counters));
+		laneRemovals.set(DEFAULT_LANE, sumLanes(removals));
+		counters = laneCounters;
+		removals = laneRemovals;
+		this.numberOfLanes = numberOfLanes;
+	}
+
+	/**
+	 * @return the number of lanes the counters of the terrain are split in.
+	 */
+	public int getNumberOfLanes() {
+		return numberOfLanes;
+	}
+
+	/**
+	 * Auxiliary method that adds up the values of every lane.
+	 * @param lanes Values of the lanes.
+	 * @return the sum of the values.
+	 */
+	private long sumLanes(AtomicLongArray lanes) {
+		long sum = ZERO;
+		for (int i = ZERO; i < numberOfLanes; i++)
+			sum += lanes.get(i * LANE_PADDING);
+		return sum;
+	}
+
+	/**
+	 * @return whether the terrain can be dug from many threads at once or not.
+	 */
+	public boolean isConcurrent() {
+		return isConcurrent;
+	}
+	
+	/**
+	 * Gets the renderer of the terrain, creating it the first time it is needed. The renderer is published once, so digs from other
+	 * threads either mark their rows in it or are done before it was created, when it marks every row itself. The rows of a terrain
+	 * given its own plot storage are not cached.
+	 * @return the renderer of the terrain.
+	 */
+	public TerrainRenderer getRenderer() {
+		TerrainRenderer current = renderer;
+		if (current == null) {
+			synchronized (this) {
+				if (renderer == null)
+					renderer = new TerrainRenderer(this, !isMapped);
+				current = renderer;
+			}
+		}
+		return current;
+	}
+	
+	/**
+	 * Gets the treasure map of the terrain, creating it the first time it is needed.
+	 * @return the treasure map of the terrain, which is kept up to date as treasures are removed.
+	 */
+	public TreasureMap getTreasureMap() {
+		TreasureMap current = treasures;
+		if (current == null) {
+			synchronized (this) {
+				if (treasures == null)
+					treasures = createTreasureMap();
+				current = treasures;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Auxiliary method that creates the treasure map and marks every plot with treasure. The map is given to the digs before it is
+	 * filled, so they clear the plots they dig in it meanwhile, and each plot marked is checked again, so a plot dug between being
+	 * read and being marked is cleared again.
+	 * @return the treasure map filled.
 	 */
-	public boolean[][] treasureMap() {
-		boolean[][] treasureMap = new boolean[rows][cols];
-		for (int i = ZERO; i < rows; i++) {
-			for (int j = ZERO; j < cols; j++) {
-				treasureMap[i][j] = (terrain[i][j].getWorth() != ZERO);
+	private TreasureMap createTreasureMap() {
+		TreasureMap map = new TreasureMap(rows, cols);
+		liveTreasures = map;
+		VarHandle.fullFence();
+		int plots = isMapped ? rows * cols : usedPlots;
+		for (int i = ZERO; i < plots; i++) {
+			if (storage.getWorth(i) != ZERO) {
+				map.set(i);
+				if (storage.getWorth(i) == ZERO)
+					map.clear(i);
 			}
 		}
-		return treasureMap;
+		return map;
 	}
 	
 	/**
-	 * Adds a plot to the terrain.
+	 * Adds a plot to the terrain, in row order, copying its values to the plot storage and accounting for its treasure in the
+	 * wealth, in the number of remaining treasures and in the treasure map.
 	 * @param plot Plot to add.
 	 * @pre plot != null
 	 */
 	public void addPlot(Plot plot) { 
-		if(usedCols < cols) {
-			terrain[usedRows][usedCols++] = plot;
-		}
-		else {
-			usedRows++;
-			usedCols = ZERO;
-			terrain[usedRows][usedCols++] = plot;
+		if (plot.getWorth() != ZERO) {
+			addTreasure(plot.getWorth(), ONE, DEFAULT_LANE);
+			TreasureMap map = liveTreasures;
+			if (map != null)
+				map.set(usedPlots);
 		}
+		storage.setPlot(usedPlots++, plot.getWorth(), plot.getTimesDug());
+		checkDensity();
+	}
+	
+	/**
+	 * Finishes loading the terrain, once every plot was added.
+	 * @throws IOException if the plot storage cannot finish loading.
+	 */
+	public void finishLoading() throws IOException {
+		storage.finishLoading();
+	}
+
+	/**
+	 * Auxiliary method that switches from the sparse storage to a dense storage once the plots stored become more than an eighth of
+	 * the terrain, so mostly empty terrains cost memory in proportion to their treasures instead of their area.
+	 */
+	private void checkDensity() {
+		if (isSparse && storage.getStoredPlots() > rows * cols / SPARSE_DENSITY_LIMIT)
+			switchToDense();
+	}
+	
+	/**
+	 * Auxiliary method that copies every plot of the sparse storage to a new dense storage, which replaces it.
+	 */
+	private void switchToDense() {
+		PlotStorage dense = new DensePlotStorage(rows, cols);
+		storage.copyTo(dense);
+		storage = dense;
+		isSparse = false;
+	}
+	
+	/**
+	 * Auxiliary method that adds a treasure to, or removes it from, the wealth and the number of remaining treasures, atomically. Both
+	 * are packed in a single long, with the wealth in the high 32 bits, so they are always read consistently without any lock.
+	 * @param worth Value of the treasure, negated to remove it.
+	 * @param count One to add the treasure, minus one to remove it.
+	 * @param lane Lane of the counters to change.
+	 */
+	private void addTreasure(int worth, int count, int lane) {
+		counters.addAndGet(lane * LANE_PADDING, ((long) worth << COUNTERS_SHIFT) + count);
+	}
+	
+	/**
+	 * Auxiliary method that gets the index of a plot in the plot storage.
+	 * @param row Row location of the plot.
+	 * @param col Column location of the plot.
+	 * @return index of the plot.
+	 * @pre row >= 0 && row < rows && col >= 0 && col < cols
+	 */
+	private int indexOf(int row, int col) {
+		return row * cols + col;
 	}
 	
 	/**
@@ -79,17 +305,47 @@ public class Terrain {
 	 * @pre row != null && col != null
 	 */
 	public int getWorth(int row, int col) {
-		return terrain[row][col].getWorth();
+		return storage.getWorth(indexOf(row, col));
 	}
 	
 	/**
-	 * Removes the treasure from a certain plot.
-	 * @param row Row location of the plot to remove treasure from.
-	 * @param col Column location of the plot to remove treasure from.
+	 * Digs a plot, removing its treasure and increasing the times it was dug in a single atomic step, so when many threads dig the same
+	 * plot at once only one of them collects its treasure. If the plot had treasure, updates the wealth, the number of remaining
+	 * treasures and the treasure map, and marks the row of the plot as changed in the renderer.
+	 * @param row Row location of the plot to dig.
+	 * @param col Column location of the plot to dig.
+	 * @return the plot as it was before being dug, packed as in the plot storage.
 	 * @pre row != null && col != null
 	 */
-	public void removeTreasure(int row, int col) {
-		terrain[row][col].removeTreasure();
+	public long dig(int row, int col) {
+		return dig(row, col, DEFAULT_LANE);
+	}
+
+	/**
+	 * Digs a plot as dig(row, col) does, counting the treasure removed in a certain lane of the counters.
+	 * @param row Row location of the plot to dig.
+	 * @param col Column location of the plot to dig.
+	 * @param lane Lane of the counters.
+	 * @return the plot as it was before being dug, packed as in the plot storage.
+	 * @pre row != null && col != null && lane >= 0 && lane < getNumberOfLanes()
+	 */
+	public long dig(int row, int col, int lane) {
+		int plot = indexOf(row, col);
+		long before = storage.dig(plot);
+		int worth = PlotStorage.worthOf(before);
+		if (worth != ZERO) {
+			removals.addAndGet(lane * LANE_PADDING, ONE_REMOVAL_STARTED);
+			TreasureMap map = liveTreasures;
+			if (map != null)
+				map.clear(plot);
+			addTreasure(-worth, -ONE, lane);
+			TerrainRenderer current = renderer;
+			if (current != null)
+				current.markDirty(row);
+			removals.incrementAndGet(lane * LANE_PADDING);
+		}
+		checkDensity();
+		return before;
 	}
 	
 	/**
@@ -98,7 +354,7 @@ public class Terrain {
 	 * @return the number of times a certain plot was dug.
 	 */
 	public int getTimesDug(int row, int col) {
-		return terrain[row][col].getTimesDug();
+		return storage.getTimesDug(indexOf(row, col));
 	}
 	
 	/**
@@ -106,12 +362,31 @@ public class Terrain {
 	 * @return the sum of the value of all the treasures in the terrain.
 	 */
 	public int getWealth() {
-		int wealth = ZERO;
-		for (int i = ZERO; i < rows; i++) {
-			for (int j = ZERO; j < cols; j++) {
-				wealth += terrain[i][j].getWorth();
-			}
-		}
-		return wealth;
+		return (int) (sumLanes(counters) >> COUNTERS_SHIFT);
+	}
+	
+	/**
+	 * Gets the removal stamp of the terrain, with the number of removals of treasures started in the high 32 bits and the number of
+	 * those finished in the low 32 bits, added up over every lane. While the stamp stays the same and both halves are equal, the
+	 * treasure map, the wealth and the number of remaining treasures do not change.
+	 * @return the removal stamp of the terrain.
+	 */
+	public long getRemovalStamp() {
+		return sumLanes(removals);
+	}
+
+	/**
+	 * @param stamp Removal stamp.
+	 * @return whether no removal of a treasure was in progress when the stamp was taken or not.
+	 */
+	public boolean isSettled(long stamp) {
+		return (int) (stamp >>> COUNTERS_SHIFT) == (int) stamp;
+	}
+	
+	/**
+	 * @return the number of plots that still have treasure.
+	 */
+	public int getRemainingTreasures() {
+		return (int) sumLanes(counters);
 	}
 }
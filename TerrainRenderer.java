@@ -0,0 +1,203 @@
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Renders the treasure map of the terrain as text, with a '*' for each plot with treasure and a '-' for each plot without, one line per row.
+ * The rendered rows are cached as bytes, laid out one after the other in blocks, and a row is only rendered again after the terrain
+ * marks it as dirty, so printing the terrain only re-renders the rows changed since the last print and writes each block at once.
+ * Dirty rows are kept in a bit set that is marked atomically, so digs never wait for a print. A print re-renders the dirty rows until
+ * the removal stamp of the terrain shows that no treasure was removed meanwhile, so the terrain printed is the one at a single point
+ * in time, unless treasures keep being removed for a number of attempts, when it settles for the rows as last rendered.
+ * Only the rendering is synchronized, and the blocks are written afterwards, so a slow stream never holds up the prints to other
+ * streams. Blocks being written are shared, so a block is copied before one of its rows is rendered again, and blocks are kept small
+ * for those copies to be cheap.
+ * Nothing is rendered or allocated until the first print, which renders every row, so a terrain that is never printed costs nothing.
+ * A terrain kept outside of the heap, such as in a map file, is not cached at all: each print renders the rows from the plots of the
+ * terrain into a small buffer of its own, a block at a time, and writes them as they are rendered, so its rows never take up the
+ * heap, although a print is then not taken at a single point in time while teams dig.
+ */
+
+public class TerrainRenderer {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int NONE = -1;
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_SIZE = 1 << WORD_SHIFT;
+	private static final int MAX_ATTEMPTS = 8;
+	private static final long ALL_ROWS = -1L;
+	private static final VarHandle DIRTY = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final int MAX_BLOCK_SIZE = 1 << 16;
+	private static final byte TREASURE_PLOT = '*';
+	private static final byte EMPTY_PLOT = '-';
+
+	// instance variables
+
+	private Terrain terrain;
+	private TreasureMap treasures;
+	private byte[][] blocks;
+	private boolean[] shared;
+	private byte[] lineSeparator;
+	private int rowSize;
+	private int rowsPerBlock;
+	private long[] dirtyRows;
+	private boolean isCached;
+
+	// constructors
+
+	/**
+	 * Creates a renderer for a terrain, with every row marked as dirty, so nothing is rendered until the first print.
+	 * @param terrain Terrain to render.
+	 * @param isCached Whether the rendered rows are cached or not.
+	 * @pre terrain != null
+	 */
+	public TerrainRenderer(Terrain terrain, boolean isCached) {
+		this.terrain = terrain;
+		this.isCached = isCached;
+		lineSeparator = System.lineSeparator().getBytes();
+		rowSize = terrain.getCols() + lineSeparator.length;
+		rowsPerBlock = Math.max(ONE, MAX_BLOCK_SIZE / rowSize);
+		if (isCached) {
+			int rows = terrain.getRows();
+			dirtyRows = new long[(rows + WORD_SIZE - ONE) >>> WORD_SHIFT];
+			Arrays.fill(dirtyRows, ALL_ROWS);
+			if ((rows & (WORD_SIZE - ONE)) != ZERO)
+				dirtyRows[dirtyRows.length - ONE] = (1L << rows) - ONE;
+		}
+	}
+
+	// methods
+
+	/**
+	 * Marks a row as changed, so it is rendered again on the next print. Nothing is marked if the rows are not cached.
+	 * @param row Row that changed.
+	 * @pre row >= 0 && row < number of rows of the terrain
+	 */
+	public void markDirty(int row) {
+		if (!isCached)
+			return;
+		long bit = 1L << row;
+		if (((long) DIRTY.getAcquire(dirtyRows, row >>> WORD_SHIFT) & bit) == ZERO)
+			DIRTY.getAndBitwiseOr(dirtyRows, row >>> WORD_SHIFT, bit);
+	}
+
+	/**
+	 * Auxiliary method that renders a row into its place in the blocks, filling the row with empty plots and then marking the plots
+	 * with treasure found in the treasure map. A block shared with a print is copied first.
+	 * @param row Row to render.
+	 */
+	private void renderRow(int row) {
+		int index = row / rowsPerBlock;
+		if (shared[index]) {
+			blocks[index] = blocks[index].clone();
+			shared[index] = false;
+		}
+		byte[] block = blocks[index];
+		int start = (row % rowsPerBlock) * rowSize;
+		int cols = treasures.getCols();
+		Arrays.fill(block, start, start + cols, EMPTY_PLOT);
+		int first = row * cols;
+		int plot = treasures.nextTreasure(first);
+		while (plot != NONE && plot < first + cols) {
+			block[start + plot - first] = TREASURE_PLOT;
+			plot = treasures.nextTreasure(plot + ONE);
+		}
+		int position = start + cols;
+		System.arraycopy(lineSeparator, ZERO, block, position, lineSeparator.length);
+	}
+
+	/**
+	 * Auxiliary method that renders the rows marked as dirty, clearing their marks.
+	 */
+	private void renderDirtyRows() {
+		for (int i = ZERO; i < dirtyRows.length; i++) {
+			if ((long) DIRTY.getAcquire(dirtyRows, i) != ZERO) {
+				long bits = (long) DIRTY.getAndSet(dirtyRows, i, 0L);
+				while (bits != ZERO) {
+					renderRow((i << WORD_SHIFT) + Long.numberOfTrailingZeros(bits));
+					bits &= bits - ONE;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renders the rows marked as dirty and writes the whole terrain. The dirty rows are rendered again while treasures were being
+	 * removed during the last rendering, up to a number of attempts. Renderings are synchronized with each other, but not with digs,
+	 * and the terrain is written after the rendering, from blocks shared with the renderer.
+	 * @param out Stream where to write the terrain.
+	 * @pre out != null
+	 */
+	public void render(PrintStream out) {
+		if (!isCached) {
+			streamTerrain(out);
+			return;
+		}
+		byte[][] rendered = renderTerrain();
+		for (int i = ZERO; i < rendered.length; i++)
+			out.write(rendered[i], ZERO, rendered[i].length);
+		out.flush();
+	}
+
+	/**
+	 * Auxiliary method that renders the rows marked as dirty and shares the blocks of the terrain rendered.
+	 * @return the blocks of the terrain, which are not changed afterwards.
+	 */
+	private synchronized byte[][] renderTerrain() {
+		if (blocks == null)
+			createBlocks();
+		long stamp = terrain.getRemovalStamp();
+		for (int attempts = ONE; ; attempts++) {
+			renderDirtyRows();
+			long current = terrain.getRemovalStamp();
+			if ((current == stamp && terrain.isSettled(stamp)) || attempts == MAX_ATTEMPTS)
+				break;
+			stamp = current;
+			Thread.onSpinWait();
+		}
+		Arrays.fill(shared, true);
+		return blocks.clone();
+	}
+
+	/**
+	 * Auxiliary method that allocates the blocks of the rows, on the first print, together with the treasure map they are rendered
+	 * from.
+	 */
+	private void createBlocks() {
+		treasures = terrain.getTreasureMap();
+		int rows = terrain.getRows();
+		blocks = new byte[(rows + rowsPerBlock - ONE) / rowsPerBlock][];
+		for (int i = ZERO; i < blocks.length; i++)
+			blocks[i] = new byte[Math.min(rowsPerBlock, rows - i * rowsPerBlock) * rowSize];
+		shared = new boolean[blocks.length];
+	}
+
+	/**
+	 * Auxiliary method that renders every row from the plots of the terrain and writes it, a block at a time, without caching any row.
+	 * @param out Stream where to write the terrain.
+	 */
+	private void streamTerrain(PrintStream out) {
+		int rows = terrain.getRows();
+		int cols = terrain.getCols();
+		byte[] block = new byte[Math.min(rowsPerBlock, rows) * rowSize];
+		int size = ZERO;
+		for (int row = ZERO; row < rows; row++) {
+			for (int col = ZERO; col < cols; col++)
+				block[size + col] = terrain.getWorth(row, col) != ZERO ? TREASURE_PLOT : EMPTY_PLOT;
+			System.arraycopy(lineSeparator, ZERO, block, size + cols, lineSeparator.length);
+			size += rowSize;
+			if (size == block.length) {
+				out.write(block, ZERO, size);
+				size = ZERO;
+			}
+		}
+		out.write(block, ZERO, size);
+		out.flush();
+	}
+}
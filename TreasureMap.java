@@ -0,0 +1,105 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes 
+ * Map of the plots of the terrain that have treasure, kept as a bit set with one bit per plot, where the plot in row r and column c
+ * is bit r * cols + c. The map is kept up to date by the terrain and can only be read from outside of it. Plots are marked and
+ * cleared atomically, so the map can be filled while plots of the same word are cleared from many threads at once.
+ */
+
+public class TreasureMap {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int NONE = -1;
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_SIZE = 1 << WORD_SHIFT;
+	private static final long ALL_BITS = -1L;
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	// instance variables
+
+	private long[] words;
+	private int rows, cols;
+
+	// constructors
+
+	public TreasureMap(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		words = new long[(int) (((long) rows * cols + WORD_SIZE - 1) >>> WORD_SHIFT)];
+	}
+
+	// methods
+
+	/**
+	 * @return the number of rows of the map.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of columns of the map.
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * @param plot Index of the plot.
+	 * @return whether the plot has treasure or not.
+	 * @pre plot >= 0 && plot < getRows() * getCols()
+	 */
+	public boolean hasTreasure(int plot) {
+		return (words[plot >>> WORD_SHIFT] & (1L << plot)) != ZERO;
+	}
+
+	/**
+	 * @param row Row location of the plot.
+	 * @param col Column location of the plot.
+	 * @return whether the plot has treasure or not.
+	 * @pre row >= 0 && row < getRows() && col >= 0 && col < getCols()
+	 */
+	public boolean hasTreasure(int row, int col) {
+		return hasTreasure(row * cols + col);
+	}
+
+	/**
+	 * Finds the first plot with treasure at or after a certain plot, skipping a whole word of plots without treasure at a time.
+	 * @param plot Index of the plot where to start.
+	 * @return index of the first plot with treasure, or -1 if there is none.
+	 * @pre plot >= 0
+	 */
+	public int nextTreasure(int plot) {
+		int word = plot >>> WORD_SHIFT;
+		if (word >= words.length)
+			return NONE;
+		long bits = words[word] & (ALL_BITS << plot);
+		while (bits == ZERO) {
+			if (++word == words.length)
+				return NONE;
+			bits = words[word];
+		}
+		return (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Marks a plot as having treasure, atomically. Only used by the terrain.
+	 * @param plot Index of the plot.
+	 */
+	void set(int plot) {
+		WORDS.getAndBitwiseOr(words, plot >>> WORD_SHIFT, 1L << plot);
+	}
+
+	/**
+	 * Marks a plot as not having treasure, atomically. Only used by the terrain.
+	 * @param plot Index of the plot.
+	 */
+	void clear(int plot) {
+		WORDS.getAndBitwiseAnd(words, plot >>> WORD_SHIFT, ~(1L << plot));
+	}
+}
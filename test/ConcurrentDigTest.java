@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests digging a concurrent terrain from many threads at once: when every thread digs every plot, each treasure is collected by
+ * exactly one thread, so the worth collected plus the wealth left is always the wealth the terrain started with, whether the threads
+ * count their removals in the same lane or in lanes of their own. The terrain is loaded sparse, so it switches to a dense storage
+ * when it is made concurrent.
+ */
+
+public class ConcurrentDigTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int ROWS = 40;
+	private static final int COLS = 50;
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 20;
+	private static final int TREASURE_SPACING = 11;
+	private static final long SEED = 7;
+
+	// methods
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		for (int round = ZERO; round < ROUNDS; round++) {
+			collectsEveryTreasureOnce(false, SEED + round);
+			collectsEveryTreasureOnce(true, SEED + round);
+		}
+		System.out.println("ConcurrentDigTest: ok");
+	}
+
+	/**
+	 * Checks that threads digging every plot of the same terrain at once, each in an order of its own, collect every treasure exactly
+	 * once, and that the wealth and the remaining treasures of the terrain account for every treasure collected.
+	 * @param lanes Whether each thread counts its removals in a lane of its own or not.
+	 * @param seed Seed of the orders of the threads.
+	 * @throws IOException if the terrain cannot finish loading.
+	 * @throws InterruptedException if the test is interrupted while waiting for the threads.
+	 */
+	private static void collectsEveryTreasureOnce(boolean lanes, long seed) throws IOException, InterruptedException {
+		Terrain terrain = createTerrain();
+		check(terrain.isSparse(), "terrain loaded sparse");
+		terrain.makeConcurrent();
+		if (lanes)
+			terrain.splitCounters(THREADS);
+		int wealth = terrain.getWealth();
+		int treasures = terrain.getRemainingTreasures();
+		TreasureMap map = terrain.getTreasureMap();
+		AtomicLong collectedWorth = new AtomicLong();
+		AtomicLong collectedTreasures = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(ONE);
+		Thread[] threads = new Thread[THREADS];
+		for (int i = ZERO; i < THREADS; i++) {
+			int[] order = shuffledPlots(new Random(seed * THREADS + i));
+			int lane = lanes ? i : ZERO;
+			threads[i] = new Thread(() -> {
+				awaitStart(start);
+				for (int plot : order) {
+					int worth = PlotStorage.worthOf(terrain.dig(plot / COLS, plot % COLS, lane));
+					if (worth != ZERO) {
+						collectedWorth.addAndGet(worth);
+						collectedTreasures.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (int i = ZERO; i < THREADS; i++)
+			threads[i].join();
+		check(collectedWorth.get() + terrain.getWealth() == wealth, "worth collected plus wealth left");
+		check(terrain.getWealth() == ZERO && terrain.getRemainingTreasures() == ZERO, "every treasure removed");
+		check(collectedTreasures.get() == treasures, "every treasure collected once");
+		check(map.nextTreasure(ZERO) < ZERO, "treasure map cleared");
+		for (int row = ZERO; row < ROWS; row++)
+			for (int col = ZERO; col < COLS; col++)
+				check(terrain.getTimesDug(row, col) == THREADS, "every dig counted at " + row + " " + col);
+	}
+
+	/**
+	 * Auxiliary method that waits for every thread to be ready to dig, so the threads start digging at once.
+	 * @param start Latch released once every thread is started.
+	 */
+	private static void awaitStart(CountDownLatch start) {
+		try {
+			start.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Auxiliary method that creates a terrain with few enough treasures to stay in a sparse storage until it is made concurrent.
+	 * @return the terrain created.
+	 * @throws IOException if the terrain cannot finish loading.
+	 */
+	private static Terrain createTerrain() throws IOException {
+		Terrain terrain = new Terrain(ROWS, COLS);
+		for (int i = ZERO; i < ROWS * COLS; i++)
+			terrain.addPlot(new Plot(i % TREASURE_SPACING == ZERO ? i % 40 + ONE : ZERO));
+		terrain.finishLoading();
+		return terrain;
+	}
+
+	/**
+	 * Auxiliary method that lists every plot of the terrain in a random order.
+	 * @param random Source of the order.
+	 * @return the indexes of the plots, shuffled.
+	 */
+	private static int[] shuffledPlots(Random random) {
+		int[] plots = new int[ROWS * COLS];
+		for (int i = ZERO; i < plots.length; i++)
+			plots[i] = i;
+		for (int i = plots.length - ONE; i > ZERO; i--) {
+			int j = random.nextInt(i + ONE);
+			int plot = plots[i];
+			plots[i] = plots[j];
+			plots[j] = plot;
+		}
+		return plots;
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
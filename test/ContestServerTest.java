@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the contest server: two sessions open at once over a temporary socket share the same contest, so a dig of one is seen by
+ * the other, and a session that exits is closed while the other one is still served.
+ */
+
+public class ContestServerTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int END_OF_INPUT = -1;
+	private static final int ROWS = 3;
+	private static final int COLS = 3;
+	private static final int WORTH = 10;
+	private static final int TEAM_SIZE = 2;
+	private static final String SOCKET_NAME = "contest.sock";
+	private static final String WEALTH = "riqueza\n";
+	private static final String BURIED_VALUE = "Riqueza enterrada: ";
+
+	// methods
+
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory("contest");
+		Path socketPath = directory.resolve(SOCKET_NAME);
+		try {
+			sessionsShareTheContest(socketPath);
+			check(!Files.exists(socketPath), "socket file removed");
+		} finally {
+			Files.deleteIfExists(socketPath);
+			Files.delete(directory);
+		}
+		System.out.println("ContestServerTest: ok");
+	}
+
+	/**
+	 * Checks that two sessions open at once read and dig the same contest, and that one of them can exit while the other is served.
+	 * @param socketPath Path of the socket.
+	 * @throws IOException if the server or the sessions cannot be used.
+	 */
+	private static void sessionsShareTheContest(Path socketPath) throws IOException {
+		ArchaeologySystem as = createSystem();
+		as.makeConcurrent();
+		ContestServer server = new ContestServer(as, socketPath.toString());
+		server.start();
+		try (SocketChannel first = connect(socketPath); SocketChannel second = connect(socketPath)) {
+			int wealth = ROWS * COLS * WORTH;
+			send(first, WEALTH);
+			check(readLine(first).equals(BURIED_VALUE + wealth), "first session reads the wealth");
+			send(second, "escavacao 1 1 Equipa1\n" + WEALTH);
+			check(readLine(second).equals(BURIED_VALUE + (wealth - WORTH)), "second session digs");
+			send(first, WEALTH);
+			check(readLine(first).equals(BURIED_VALUE + (wealth - WORTH)), "first session sees the dig");
+			send(first, "sair\n");
+			check(readLine(first) == null, "first session closed once it exits");
+			send(second, "escavacao 2 2 Equipa0\n" + WEALTH);
+			check(readLine(second).equals(BURIED_VALUE + (wealth - 2 * WORTH)), "second session still served");
+		} finally {
+			server.close();
+		}
+	}
+
+	/**
+	 * Auxiliary method that creates a system whose terrain has a treasure in every plot, with two teams of licensed players.
+	 * @return the system created.
+	 */
+	private static ArchaeologySystem createSystem() {
+		ArchaeologySystem as = new ArchaeologySystem(ROWS, COLS);
+		for (int i = ZERO; i < ROWS * COLS; i++)
+			as.addPlot(new Plot(WORTH));
+		for (int i = ZERO; i < 2; i++) {
+			Team team = new Team("Equipa" + i, TEAM_SIZE, as.getPlayerStore());
+			for (int j = ZERO; j < TEAM_SIZE; j++)
+				team.addPlayer("Arqueologo" + i + j);
+			as.addTeam(team);
+		}
+		return as;
+	}
+
+	/**
+	 * Auxiliary method that opens a session of the server.
+	 * @param socketPath Path of the socket.
+	 * @return the channel of the session.
+	 * @throws IOException if the session cannot be opened.
+	 */
+	private static SocketChannel connect(Path socketPath) throws IOException {
+		SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		channel.connect(UnixDomainSocketAddress.of(socketPath));
+		return channel;
+	}
+
+	/**
+	 * Auxiliary method that sends commands to a session.
+	 * @param channel Channel of the session.
+	 * @param commands Commands to send.
+	 * @throws IOException if the commands cannot be sent.
+	 */
+	private static void send(SocketChannel channel, String commands) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(commands.getBytes(StandardCharsets.US_ASCII));
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Auxiliary method that reads a line of the output of a session, one byte at a time, so nothing after the line is consumed.
+	 * @param channel Channel of the session.
+	 * @return the line read, without the line separator, or null if the session was closed.
+	 * @throws IOException if the session cannot be read.
+	 */
+	private static String readLine(SocketChannel channel) throws IOException {
+		StringBuilder line = new StringBuilder();
+		ByteBuffer buffer = ByteBuffer.allocate(ONE);
+		while (true) {
+			buffer.clear();
+			if (channel.read(buffer) == END_OF_INPUT)
+				return line.length() == ZERO ? null : line.toString();
+			char c = (char) buffer.get(ZERO);
+			if (c == '\n')
+				return line.toString();
+			if (c != '\r')
+				line.append(c);
+		}
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,107 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the memory-mapped plot storage: a map file reopened after its terrain was dug still holds the terrain as it was loaded,
+ * terrains with more plots than the largest plot index are refused, and opening a missing map file fails without creating it.
+ */
+
+public class MappedPlotStorageTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int ROWS = 3;
+	private static final int COLS = 4;
+	private static final int[] WORTH = {0, 5, 0, 0, 7, 0, 0, 0, 0, 0, 0, 9};
+
+	// methods
+
+	public static void main(String[] args) throws IOException {
+		File mapFile = File.createTempFile("terrain", ".map");
+		try {
+			reopensTheTerrainAsLoaded(mapFile);
+			refusesTooManyPlots(mapFile);
+		} finally {
+			mapFile.delete();
+		}
+		refusesMissingFile(mapFile);
+		System.out.println("MappedPlotStorageTest: ok");
+	}
+
+	/**
+	 * Checks that digging a terrain kept in a map file, both before and after reopening it, never changes the file.
+	 * @param mapFile Map file to use.
+	 * @throws IOException if the map file cannot be used.
+	 */
+	private static void reopensTheTerrainAsLoaded(File mapFile) throws IOException {
+		Terrain loaded = new Terrain(ROWS, COLS, new MappedPlotStorage(mapFile.getPath(), ROWS, COLS));
+		for (int i = ZERO; i < WORTH.length; i++)
+			loaded.addPlot(new Plot(WORTH[i]));
+		loaded.finishLoading();
+		check(loaded.getWealth() == 21, "wealth loaded");
+		loaded.dig(ZERO, ONE);
+		loaded.dig(ONE, ZERO);
+		check(loaded.getWealth() == 9, "wealth dug");
+		check(loaded.getTimesDug(ZERO, ONE) == ONE, "plot dug");
+		for (int contest = ZERO; contest < 2; contest++) {
+			MappedPlotStorage storage = new MappedPlotStorage(mapFile.getPath());
+			check(storage.getRows() == ROWS && storage.getCols() == COLS, "dimensions reopened");
+			Terrain reopened = new Terrain(ROWS, COLS, storage);
+			check(reopened.getWealth() == 21, "wealth reopened");
+			check(reopened.getRemainingTreasures() == 3, "treasures reopened");
+			check(reopened.getWorth(ZERO, ONE) == 5 && reopened.getTimesDug(ZERO, ONE) == ZERO, "plot reopened undug");
+			reopened.dig(2, 3);
+			check(reopened.getWealth() == 12, "wealth dug after reopening");
+		}
+	}
+
+	/**
+	 * Checks that terrains with more plots than the largest plot index are refused, both by the storage and by the terrain.
+	 * @param mapFile Map file to use.
+	 */
+	private static void refusesTooManyPlots(File mapFile) {
+		boolean refused = false;
+		try {
+			new MappedPlotStorage(mapFile.getPath(), 1 << 16, 1 << 16);
+		} catch (IOException e) {
+			refused = true;
+		}
+		check(refused, "map file refused");
+		refused = false;
+		try {
+			new Terrain(1 << 16, 1 << 16);
+		} catch (IllegalArgumentException e) {
+			refused = true;
+		}
+		check(refused, "terrain refused");
+	}
+
+	/**
+	 * Checks that opening a map file that does not exist fails and leaves no file behind.
+	 * @param mapFile Map file that no longer exists.
+	 */
+	private static void refusesMissingFile(File mapFile) {
+		boolean refused = false;
+		try {
+			new MappedPlotStorage(mapFile.getPath());
+		} catch (IOException e) {
+			refused = true;
+		}
+		check(refused, "missing map file refused");
+		check(!mapFile.exists(), "missing map file not created");
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,153 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the top-k ranking: the best teams, both got and printed, are the first teams of the whole ranking, whether the rendered
+ * ranking is up to date or not, all the teams are given when more are asked for than there are, and a concurrent system prints
+ * the same.
+ */
+
+public class RankingRendererTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int TWO = 2;
+	private static final int TEAMS = 3;
+	private static final int TEAM_SIZE = 2;
+	private static final int MORE_THAN_TEAMS = 10;
+	private static final int COLS = 6;
+	private static final int[] WORTH = {0, 30, 20, 10, 0, 50};
+
+	// methods
+
+	public static void main(String[] args) {
+		printsTheBestTeams(false);
+		printsTheBestTeams(true);
+		System.out.println("RankingRendererTest: ok");
+	}
+
+	/**
+	 * Checks the best teams got and printed before and after the ranking is rendered whole, and once the leader changes.
+	 * @param concurrent Whether the system is made concurrent or not.
+	 */
+	private static void printsTheBestTeams(boolean concurrent) {
+		ArchaeologySystem as = createSystem();
+		TeamHandle[] teams = addTeams(as);
+		if (concurrent)
+			as.makeConcurrent();
+		for (int i = ZERO; i < TEAMS; i++)
+			as.dig(teams[i], ONE, i + TWO);
+		checkTopTeams(as, "Equipa0", "Equipa1", "Equipa2");
+		String[] whole = lines(render(as, ZERO));
+		check(whole.length == TEAMS && whole[ZERO].startsWith("Equipa0: "), "whole ranking rendered");
+		check(render(as, TWO).equals(lines(whole, TWO)), "best teams printed from the rendered ranking");
+		check(render(as, MORE_THAN_TEAMS).equals(lines(whole, TEAMS)), "every team printed from the rendered ranking");
+		as.dig(teams[TWO], ONE, COLS);
+		checkTopTeams(as, "Equipa2", "Equipa0", "Equipa1");
+		String best = render(as, ONE);
+		String[] changed = lines(render(as, ZERO));
+		check(changed[ZERO].startsWith("Equipa2: "), "new leader rendered");
+		check(best.equals(lines(changed, ONE)), "best team printed before the ranking is rendered again");
+		as.dig(teams[ZERO], ONE, TWO);
+		String all = render(as, MORE_THAN_TEAMS);
+		check(all.equals(render(as, ZERO)), "every team printed before the ranking is rendered again");
+	}
+
+	/**
+	 * Auxiliary method that checks the best teams got for every number of teams, up to more than there are.
+	 * @param as System of the teams.
+	 * @param names Names of the teams, in ranking order.
+	 */
+	private static void checkTopTeams(ArchaeologySystem as, String... names) {
+		for (int k = ZERO; k <= MORE_THAN_TEAMS; k++) {
+			TeamIterator it = as.getTopTeams(k);
+			int number = ZERO;
+			while (it.hasNext()) {
+				check(number < names.length && it.next().getName().equals(names[number]), "team " + number + " of top " + k);
+				number++;
+			}
+			check(number == Math.min(k, names.length), "size of top " + k);
+		}
+	}
+
+	/**
+	 * Auxiliary method that prints the ranking, or only its best teams, into a string.
+	 * @param as System of the teams.
+	 * @param k Number of teams to print, or zero to print every team.
+	 * @return the text printed.
+	 */
+	private static String render(ArchaeologySystem as, int k) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes);
+		if (k == ZERO)
+			as.getRankingRenderer().render(out);
+		else
+			as.getRankingRenderer().render(out, k);
+		out.flush();
+		return bytes.toString();
+	}
+
+	/**
+	 * Auxiliary method that splits a printed ranking in lines.
+	 * @param text Text printed.
+	 * @return the lines of the text.
+	 */
+	private static String[] lines(String text) {
+		return text.split(System.lineSeparator());
+	}
+
+	/**
+	 * Auxiliary method that joins the first lines of a printed ranking as they are printed.
+	 * @param lines Lines of the ranking.
+	 * @param k Number of lines to join.
+	 * @return the text of the first lines.
+	 */
+	private static String lines(String[] lines, int k) {
+		StringBuilder text = new StringBuilder();
+		for (int i = ZERO; i < k; i++)
+			text.append(lines[i]).append(System.lineSeparator());
+		return text.toString();
+	}
+
+	/**
+	 * Auxiliary method that creates a system with a single row of plots of different worth, which players reach from their starting
+	 * location, just outside the terrain, with a jump of one row.
+	 * @return the system created.
+	 */
+	private static ArchaeologySystem createSystem() {
+		ArchaeologySystem as = new ArchaeologySystem(ONE, COLS);
+		for (int i = ZERO; i < COLS; i++)
+			as.addPlot(new Plot(WORTH[i]));
+		return as;
+	}
+
+	/**
+	 * Auxiliary method that adds the teams, with licensed players, to a system.
+	 * @param as System where to add the teams.
+	 * @return the handles of the teams.
+	 */
+	private static TeamHandle[] addTeams(ArchaeologySystem as) {
+		TeamHandle[] teams = new TeamHandle[TEAMS];
+		for (int i = ZERO; i < TEAMS; i++) {
+			Team team = new Team("Equipa" + i, TEAM_SIZE, as.getPlayerStore());
+			for (int j = ZERO; j < TEAM_SIZE; j++)
+				team.addPlayer("Arqueologo" + i + j);
+			teams[i] = as.addTeam(team);
+		}
+		return teams;
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
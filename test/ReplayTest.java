@@ -0,0 +1,93 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Replays recorded contests through the program and compares what it prints with what the original program printed. Each case in
+ * test/replay has the standard input, the teams file and the output expected, and is run in a directory of its own, both as it is
+ * and with the terrain sharded, which must print exactly the same.
+ */
+
+public class ReplayTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final String CASES = "test/replay";
+	private static final String INPUT = "in.txt";
+	private static final String TEAMS = "teams.txt";
+	private static final String OUTPUT = "out.txt";
+	private static final String[][] OPTIONS = {{}, {"-f", "3"}};
+
+	// methods
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		File[] cases = new File(CASES).listFiles(File::isDirectory);
+		check(cases != null && cases.length > ZERO, "cases found in " + CASES);
+		Arrays.sort(cases);
+		for (File replay : cases)
+			for (String[] options : OPTIONS)
+				replay(replay.toPath(), options);
+		System.out.println("ReplayTest: ok");
+	}
+
+	/**
+	 * Auxiliary method that runs the program over the input of a case, in a new directory with the files of the case, and checks that
+	 * it prints the output expected.
+	 * @param replay Directory of the case.
+	 * @param options Options given to the program.
+	 * @throws IOException if the files of the case cannot be copied or read.
+	 * @throws InterruptedException if interrupted while waiting for the program.
+	 */
+	private static void replay(Path replay, String[] options) throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("replay");
+		try {
+			Files.copy(replay.resolve(INPUT), directory.resolve(INPUT));
+			Files.copy(replay.resolve(TEAMS), directory.resolve(TEAMS));
+			String[] command = new String[4 + options.length];
+			command[0] = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+			command[1] = "-cp";
+			command[2] = absoluteClassPath();
+			command[3] = "Main";
+			System.arraycopy(options, ZERO, command, 4, options.length);
+			Process program = new ProcessBuilder(command).directory(directory.toFile()).redirectInput(directory.resolve(INPUT).toFile())
+					.redirectOutput(directory.resolve(OUTPUT).toFile()).redirectErrorStream(true).start();
+			check(program.waitFor() == ZERO, replay + " " + Arrays.toString(options) + " exits normally");
+			byte[] expected = Files.readAllBytes(replay.resolve(OUTPUT));
+			byte[] actual = Files.readAllBytes(directory.resolve(OUTPUT));
+			check(Arrays.equals(expected, actual), replay + " " + Arrays.toString(options) + " prints the output expected");
+		} finally {
+			File[] files = directory.toFile().listFiles();
+			if (files != null)
+				for (File file : files)
+					file.delete();
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Auxiliary method that gets the class path of the test with every entry made absolute, so the program finds its classes from any
+	 * directory.
+	 * @return the absolute class path.
+	 */
+	private static String absoluteClassPath() {
+		String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+		for (int i = ZERO; i < entries.length; i++)
+			entries[i] = new File(entries[i]).getAbsolutePath();
+		return String.join(File.pathSeparator, entries);
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
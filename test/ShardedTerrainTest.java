@@ -0,0 +1,135 @@
+import java.util.Random;
+
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the sharded terrain: a contest whose digs are routed to the bands of the terrain reads the same wealth, scores and star
+ * players as one that digs right away, also when teams are expelled with merit still to be given, and once the bands are closed,
+ * which can be done more than once, digs are done right away again.
+ */
+
+public class ShardedTerrainTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int ROWS = 30;
+	private static final int COLS = 20;
+	private static final int TEAMS = 5;
+	private static final int TEAM_SIZE = 3;
+	private static final int DIGS = 3000;
+	private static final int MAX_JUMP = 4;
+	private static final int SHARDS = 4;
+	private static final long SEED = 42;
+
+	// methods
+
+	public static void main(String[] args) {
+		digsAsIfNotSharded();
+		digsRightAwayOnceClosed();
+		System.out.println("ShardedTerrainTest: ok");
+	}
+
+	/**
+	 * Checks that a sharded system reads the same as a system that is not sharded after every dig of the same contest.
+	 */
+	private static void digsAsIfNotSharded() {
+		ArchaeologySystem plain = createSystem();
+		ArchaeologySystem sharded = createSystem();
+		sharded.makeConcurrent();
+		sharded.shardTerrain(SHARDS);
+		TeamHandle[] plainTeams = addTeams(plain);
+		TeamHandle[] shardedTeams = addTeams(sharded);
+		Random random = new Random(SEED);
+		for (int i = ZERO; i < DIGS; i++) {
+			int team = random.nextInt(TEAMS);
+			int jumpR = random.nextInt(2 * MAX_JUMP + ONE) - MAX_JUMP;
+			int jumpC = random.nextInt(2 * MAX_JUMP + ONE) - MAX_JUMP;
+			if (jumpR == ZERO && jumpC == ZERO)
+				jumpC = ONE;
+			check(dig(plain, plainTeams[team], jumpR, jumpC) == dig(sharded, shardedTeams[team], jumpR, jumpC), "same dig " + i);
+			check(plain.getWealth() == sharded.getWealth(), "same wealth after dig " + i);
+			Player plainStar = plain.getStarPlayer(plainTeams[team]);
+			Player shardedStar = sharded.getStarPlayer(shardedTeams[team]);
+			check(plainStar == null ? shardedStar == null : shardedStar != null && plainStar.getName().equals(shardedStar.getName())
+					&& plainStar.getMerit() == shardedStar.getMerit(), "same star after dig " + i);
+		}
+		RankingSnapshot expected = plain.getRankingSnapshot();
+		RankingSnapshot actual = sharded.getRankingSnapshot();
+		check(expected.getNumberOfTeams() == actual.getNumberOfTeams(), "same number of teams");
+		for (int i = ZERO; i < expected.getNumberOfTeams(); i++)
+			check(expected.getName(i).equals(actual.getName(i)) && expected.getScore(i) == actual.getScore(i), "same ranking at " + i);
+		check(plain.hasRemainingTreasures() == sharded.hasRemainingTreasures(), "same remaining treasures");
+		sharded.close();
+	}
+
+	/**
+	 * Checks that a closed sharded system can be closed again and digs right away, collecting the treasure at once.
+	 */
+	private static void digsRightAwayOnceClosed() {
+		ArchaeologySystem as = createSystem();
+		as.makeConcurrent();
+		as.shardTerrain(SHARDS);
+		TeamHandle team = addTeams(as)[ZERO];
+		as.close();
+		as.close();
+		int wealth = as.getWealth();
+		check(as.dig(team, ONE, ONE), "team digs once closed");
+		check(as.getWealth() < wealth, "treasure collected once closed");
+		check(as.getRankingSnapshot().getScore(ZERO) == wealth - as.getWealth(), "merit given once closed");
+	}
+
+	/**
+	 * Auxiliary method that digs for a team and removes it if it is no longer in play, as the dig command does.
+	 * @param as System of the team.
+	 * @param team Handle of the team.
+	 * @param jumpR Jump row-wise.
+	 * @param jumpC Jump column-wise.
+	 * @return whether the team dug or not.
+	 */
+	private static boolean dig(ArchaeologySystem as, TeamHandle team, int jumpR, int jumpC) {
+		if (!as.dig(team, jumpR, jumpC))
+			return false;
+		if (!as.teamIsInPlay(team))
+			as.removeTeam(team);
+		return true;
+	}
+
+	/**
+	 * Auxiliary method that creates a system whose terrain has a treasure in every other plot, the first one included.
+	 * @return the system created.
+	 */
+	private static ArchaeologySystem createSystem() {
+		ArchaeologySystem as = new ArchaeologySystem(ROWS, COLS);
+		for (int i = ZERO; i < ROWS * COLS; i++)
+			as.addPlot(new Plot(i % 2 == ZERO ? i % 50 + ONE : ZERO));
+		return as;
+	}
+
+	/**
+	 * Auxiliary method that adds the teams of the contest, with licensed players, to a system.
+	 * @param as System where to add the teams.
+	 * @return the handles of the teams.
+	 */
+	private static TeamHandle[] addTeams(ArchaeologySystem as) {
+		TeamHandle[] teams = new TeamHandle[TEAMS];
+		for (int i = ZERO; i < TEAMS; i++) {
+			Team team = new Team("Equipa" + i, TEAM_SIZE, as.getPlayerStore());
+			for (int j = ZERO; j < TEAM_SIZE; j++)
+				team.addPlayer("Arqueologo" + i + j);
+			teams[i] = as.addTeam(team);
+		}
+		return teams;
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the team collection: teams with the same name, which are all kept in the ranking, in the order they were added, while the
+ * name index always points at the last one added that is still in the collection. A concurrent collection, which only orders the
+ * teams when the ranking is read, must rank them as a sequential one does.
+ */
+
+public class TeamCollectionTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int TEAM_SIZE = 2;
+	private static final String NAME = "Exploradores";
+	private static final String OTHER_NAME = "Escavadores";
+
+	// methods
+
+	public static void main(String[] args) {
+		keepsTeamsWithTheSameName();
+		handsTheNameOverWhenTheLastTeamIsRemoved();
+		keepsTheNameWhenAnEarlierTeamIsRemoved();
+		ranksConcurrentlyAsSequentially();
+		System.out.println("TeamCollectionTest: ok");
+	}
+
+	/**
+	 * Checks that teams with the same name and the same state are all in the ranking, in the order they were added.
+	 */
+	private static void keepsTeamsWithTheSameName() {
+		TeamCollection tc = new TeamCollection();
+		Team first = createTeam(NAME);
+		Team second = createTeam(NAME);
+		Team other = createTeam(OTHER_NAME);
+		tc.addTeam(first);
+		tc.addTeam(second);
+		tc.addTeam(other);
+		check(tc.getNumberOfTeams() == 3, "three teams");
+		TeamIterator it = tc.getOrderedTeamIterator();
+		check(it.next() == other, "teams ordered by name");
+		check(it.next() == first, "first team added ranked first");
+		check(it.next() == second, "second team added ranked second");
+		check(!it.hasNext(), "no more teams");
+		check(tc.getRankingSnapshot().getNumberOfTeams() == 3, "three teams in the snapshot");
+	}
+
+	/**
+	 * Checks that removing the team of the name index hands the name over to the team with the same name added before it.
+	 */
+	private static void handsTheNameOverWhenTheLastTeamIsRemoved() {
+		TeamCollection tc = new TeamCollection();
+		TeamHandle first = tc.addTeam(createTeam(NAME));
+		TeamHandle second = tc.addTeam(createTeam(NAME));
+		check(tc.getHandle(NAME).getSlot() == second.getSlot(), "name points at the last team added");
+		tc.removeFrom(second.getSlot());
+		check(tc.getHandle(NAME).getSlot() == first.getSlot(), "name handed over to the first team");
+		tc.removeFrom(first.getSlot());
+		check(tc.getHandle(NAME) == null, "name gone with its last team");
+		check(!tc.checkTeam(NAME), "name no longer checked");
+	}
+
+	/**
+	 * Checks that removing a team with the same name as the team of the name index keeps the index as it is, also when slots are
+	 * reused.
+	 */
+	private static void keepsTheNameWhenAnEarlierTeamIsRemoved() {
+		TeamCollection tc = new TeamCollection();
+		TeamHandle first = tc.addTeam(createTeam(NAME));
+		TeamHandle second = tc.addTeam(createTeam(NAME));
+		tc.removeFrom(first.getSlot());
+		check(tc.getHandle(NAME).getSlot() == second.getSlot(), "name still points at the last team");
+		TeamHandle third = tc.addTeam(createTeam(NAME));
+		check(third.getSlot() == first.getSlot(), "slot reused");
+		check(tc.getHandle(NAME).getSlot() == third.getSlot(), "name points at the team added in the reused slot");
+		tc.removeFrom(third.getSlot());
+		check(tc.getHandle(NAME).getSlot() == second.getSlot(), "name handed back to the second team");
+		check(tc.getNumberOfTeams() == ONE, "one team left");
+		check(tc.getOrderedTeamIterator().hasNext(), "team left in the ranking");
+	}
+
+	/**
+	 * Checks that a concurrent collection ranks teams whose merit changed in the same order as a sequential one, breaking ties by the
+	 * order they were added in, and that its version increases with every change.
+	 */
+	private static void ranksConcurrentlyAsSequentially() {
+		TeamCollection sequential = new TeamCollection();
+		TeamCollection concurrent = new TeamCollection();
+		concurrent.makeConcurrent();
+		String[] names = {NAME, OTHER_NAME, NAME, "Arqueologos", OTHER_NAME};
+		int[] merits = {5, 5, ZERO, 7, -3};
+		for (int i = ZERO; i < names.length; i++) {
+			for (TeamCollection tc : new TeamCollection[] {sequential, concurrent}) {
+				TeamHandle handle = tc.addTeam(createTeam(names[i]));
+				long version = tc.getVersion();
+				tc.lockTeam(handle.getSlot());
+				try {
+					tc.updateTreasureMerit(handle.getSlot(), merits[i]);
+				} finally {
+					tc.unlockTeam(handle.getSlot());
+				}
+				check((merits[i] == ZERO) == (tc.getVersion() == version), "version increased by merit");
+			}
+		}
+		RankingSnapshot expected = sequential.getRankingSnapshot();
+		RankingSnapshot actual = concurrent.getRankingSnapshot();
+		check(actual.getNumberOfTeams() == names.length, "every team in the concurrent snapshot");
+		TeamIterator expectedTeams = sequential.getOrderedTeamIterator();
+		TeamIterator actualTeams = concurrent.getOrderedTeamIterator();
+		for (int i = ZERO; i < names.length; i++) {
+			check(actual.getName(i).equals(expected.getName(i)), "same name at " + i);
+			check(actual.getScore(i) == expected.getScore(i), "same score at " + i);
+			check(actualTeams.next().getOrder() == expectedTeams.next().getOrder(), "same team at " + i);
+		}
+		check(concurrent.getRankingSnapshot() == actual, "unchanged snapshot shared");
+	}
+
+	/**
+	 * Auxiliary method that creates a team with licensed players and no merit.
+	 * @param name Name of the team.
+	 * @return the team created.
+	 */
+	private static Team createTeam(String name) {
+		Team team = new Team(name, TEAM_SIZE);
+		for (int i = ZERO; i < TEAM_SIZE; i++)
+			team.addPlayer(name + i);
+		return team;
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * @author Tiago Costa Sousa
+ * @author Rodrigo Lemos Fernandes
+ * Tests the team handles of the system: a handle of a removed team is stale, and stays stale when its slot is reused by another team,
+ * so every method given a stale handle reports the team as gone and never changes the team now in its slot. A name with no team is
+ * reported as gone too. Both a sequential and a concurrent system are tested.
+ */
+
+public class TeamHandleTest {
+
+	// constants
+
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int ROWS = 4;
+	private static final int COLS = 4;
+	private static final int TEAM_SIZE = 2;
+	private static final int TREASURE = 50;
+
+	// methods
+
+	public static void main(String[] args) {
+		staleHandlesAreRefused(false);
+		staleHandlesAreRefused(true);
+		unknownNamesAreRefused(false);
+		unknownNamesAreRefused(true);
+		System.out.println("TeamHandleTest: ok");
+	}
+
+	/**
+	 * Checks that a handle of a removed team is refused by every method that takes a handle, also after its slot is reused.
+	 * @param concurrent Whether the system is made concurrent or not.
+	 */
+	private static void staleHandlesAreRefused(boolean concurrent) {
+		ArchaeologySystem as = createSystem();
+		if (concurrent)
+			as.makeConcurrent();
+		TeamHandle removed = as.addTeam(createTeam(as, "Exploradores"));
+		check(as.checkTeam(removed), "handle valid");
+		check(as.removeTeam(removed), "team removed");
+		checkStale(as, removed);
+		TeamHandle reused = as.addTeam(createTeam(as, "Escavadores"));
+		check(reused.getSlot() == removed.getSlot(), "slot reused");
+		checkStale(as, removed);
+		check(as.getRankingSnapshot().getScore(ZERO) == ZERO, "team in the reused slot did not dig");
+		check(as.dig(reused, ONE, ONE), "team in the reused slot digs");
+		check(as.getRankingSnapshot().getScore(ZERO) == TREASURE, "team in the reused slot collected the treasure");
+		check(as.getStarPlayer(reused) != null, "star of the team in the reused slot");
+		check(as.getNumberOfTeams() == ONE, "one team");
+	}
+
+	/**
+	 * Checks that every method taking a name refuses a name with no team, including the name of a team already removed.
+	 * @param concurrent Whether the system is made concurrent or not.
+	 */
+	private static void unknownNamesAreRefused(boolean concurrent) {
+		ArchaeologySystem as = createSystem();
+		if (concurrent)
+			as.makeConcurrent();
+		as.addTeam(createTeam(as, "Exploradores"));
+		as.removeTeam("Exploradores");
+		for (String name : new String[] {"Exploradores", "Escavadores"}) {
+			as.dig(name, ONE, ONE);
+			as.removeTeam(name);
+			check(!as.teamIsInPlay(name), "unknown name not in play");
+			check(as.getStarPlayer(name) == null, "unknown name has no star");
+			check(as.getOrderedPlayerIterator(name) == null, "unknown name has no players");
+		}
+		check(as.getNumberOfTeams() == ZERO, "no teams");
+		check(as.getWealth() == TREASURE, "treasure not dug");
+	}
+
+	/**
+	 * Auxiliary method that checks that every method taking a handle refuses a stale handle.
+	 * @param as System of the handle.
+	 * @param team Stale handle.
+	 */
+	private static void checkStale(ArchaeologySystem as, TeamHandle team) {
+		check(!as.checkTeam(team), "stale handle not valid");
+		check(!as.dig(team, ONE, ONE), "stale handle does not dig");
+		check(!as.teamIsInPlay(team), "stale handle not in play");
+		check(!as.removeTeam(team), "stale handle not removed again");
+		check(as.getStarPlayer(team) == null, "stale handle has no star");
+		check(as.getOrderedPlayerIterator(team) == null, "stale handle has no players");
+	}
+
+	/**
+	 * Auxiliary method that creates a system with a single treasure, in the first plot, where players land when they first jump one row
+	 * and one column.
+	 * @return the system created.
+	 */
+	private static ArchaeologySystem createSystem() {
+		ArchaeologySystem as = new ArchaeologySystem(ROWS, COLS);
+		for (int i = ZERO; i < ROWS * COLS; i++)
+			as.addPlot(new Plot(i == ZERO ? TREASURE : ZERO));
+		return as;
+	}
+
+	/**
+	 * Auxiliary method that creates a team with licensed players.
+	 * @param as System whose player store keeps the players.
+	 * @param name Name of the team.
+	 * @return the team created.
+	 */
+	private static Team createTeam(ArchaeologySystem as, String name) {
+		Team team = new Team(name, TEAM_SIZE, as.getPlayerStore());
+		for (int i = ZERO; i < TEAM_SIZE; i++)
+			team.addPlayer(name + i);
+		return team;
+	}
+
+	/**
+	 * Auxiliary method that fails the test if a condition does not hold.
+	 * @param condition Condition to check.
+	 * @param message Description of the condition.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}
+}